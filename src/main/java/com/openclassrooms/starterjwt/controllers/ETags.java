@@ -0,0 +1,33 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Weak ETags computed from what identifies a representation (ids, versions, update times) rather than
+ * from its bytes, so that a conditional GET can be answered before the body is built.
+ */
+final class ETags {
+    private ETags() {
+    }
+
+    static String weak(Object... parts) {
+        return "W/\"" + Arrays.stream(parts).map(String::valueOf).collect(Collectors.joining("-")) + "\"";
+    }
+
+    /**
+     * Digest of the (id, version) pairs of a list: every booking and update increments the version of
+     * its session, and a deleted session drops out of the list.
+     */
+    static String digest(List<Session> sessions) {
+        String versions = sessions.stream()
+                .map(session -> session.getId() + ":" + session.getVersion())
+                .collect(Collectors.joining(","));
+        return DigestUtils.md5DigestAsHex(versions.getBytes(StandardCharsets.UTF_8));
+    }
+}
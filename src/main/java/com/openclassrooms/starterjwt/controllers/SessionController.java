@@ -4,12 +4,19 @@ package com.openclassrooms.starterjwt.controllers;
 import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.services.BookingStatus;
+import com.openclassrooms.starterjwt.services.SessionFilter;
 import com.openclassrooms.starterjwt.services.SessionService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
+import java.util.Date;
 import java.util.List;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -17,6 +24,11 @@ import java.util.List;
 @RequestMapping("/api/session")
 @Log4j2
 public class SessionController {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final String FULL_VIEW = "full";
+    private static final String SUMMARY_VIEW = "summary";
+
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
 
@@ -28,7 +40,7 @@ public class SessionController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
             Session session = this.sessionService.getById(Long.valueOf(id));
 
@@ -36,17 +48,83 @@ public class SessionController {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            if (request.checkNotModified(ETags.weak("session", session.getId(), session.getVersion()))) {
+                return null;
+            }
+
+            return ResponseEntity.ok().body(this.sessionMapper.toDto(session, this.sessionService.findParticipantIds(session.getId())));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * Lists sessions ordered by date then id.
+     * <ul>
+     *     <li>{@code afterDate} + {@code afterId}: keyset mode, the sessions following the last one read;</li>
+     *     <li>{@code page} and/or {@code size}: page mode, with the total in the {@code X-Total-Count} header;</li>
+     *     <li>no parameter: the first sessions, capped by {@code oc.app.session.maxListSize}; when the cap cuts
+     *     the list, the total is in the {@code X-Total-Count} header.</li>
+     * </ul>
+     * In every mode, {@code from}, {@code to} and {@code teacherId} restrict the listing to the sessions
+     * dated in [from, to) and given by that teacher.
+     * {@code view=summary} returns {@link com.openclassrooms.starterjwt.dto.SessionSummaryDto}s, with participant
+     * counts instead of participant ids.
+     * Each listing carries a weak ETag of its sessions' versions; on a match, the participants are not read
+     * and a 304 is returned.
+     */
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    public ResponseEntity<?> findAll(@RequestParam(value = "page", required = false) Integer page,
+                                     @RequestParam(value = "size", required = false) Integer size,
+                                     @RequestParam(value = "afterDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date afterDate,
+                                     @RequestParam(value = "afterId", required = false) Long afterId,
+                                     @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                     @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                     @RequestParam(value = "teacherId", required = false) Long teacherId,
+                                     @RequestParam(value = "view", defaultValue = FULL_VIEW) String view,
+                                     WebRequest request) {
+        if (!FULL_VIEW.equals(view) && !SUMMARY_VIEW.equals(view)) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean summary = SUMMARY_VIEW.equals(view);
+        SessionFilter filter = new SessionFilter(from, to, teacherId);
+
+        if (afterDate != null || afterId != null) {
+            if (afterDate == null || afterId == null || page != null) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            List<Session> sessions = this.sessionService.findAfter(filter, afterDate, afterId, size != null ? size : DEFAULT_PAGE_SIZE);
+
+            if (request.checkNotModified(ETags.weak("sessions", ETags.digest(sessions)))) {
+                return null;
+            }
+            return ResponseEntity.ok().body(this.toBody(sessions, summary));
+        }
+
+        if (page != null || size != null) {
+            Page<Session> sessions = this.sessionService.findPage(filter, page != null ? page : 0, size != null ? size : DEFAULT_PAGE_SIZE);
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+            if (request.checkNotModified(ETags.weak("sessions", sessions.getTotalElements(), ETags.digest(sessions.getContent())))) {
+                return null;
+            }
+
+            return ResponseEntity.ok()
+                    .header(TOTAL_COUNT_HEADER, String.valueOf(sessions.getTotalElements()))
+                    .body(this.toBody(sessions.getContent(), summary));
+        }
+
+        Page<Session> sessions = this.sessionService.findAll(filter);
+
+        if (request.checkNotModified(ETags.weak("sessions", sessions.getTotalElements(), ETags.digest(sessions.getContent())))) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (sessions.hasNext()) {
+            response.header(TOTAL_COUNT_HEADER, String.valueOf(sessions.getTotalElements()));
+        }
+        return response.body(this.toBody(sessions.getContent(), summary));
     }
 
     @PostMapping()
@@ -64,7 +142,7 @@ public class SessionController {
         try {
             Session session = this.sessionService.update(Long.parseLong(id), this.sessionMapper.toEntity(sessionDto));
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            return ResponseEntity.ok().body(this.sessionMapper.toDto(session, this.sessionService.findParticipantIds(session.getId())));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -89,8 +167,11 @@ public class SessionController {
     @PostMapping("{id}/participate/{userId}")
     public ResponseEntity<?> participate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
-            this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
+            BookingStatus status = this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
 
+            if (status == BookingStatus.WAITLISTED) {
+                return ResponseEntity.accepted().body(new MessageResponse("Session is full, added to the waitlist"));
+            }
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
@@ -107,4 +188,11 @@ public class SessionController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    private List<?> toBody(List<Session> sessions, boolean summary) {
+        if (summary) {
+            return this.sessionMapper.toSummary(sessions);
+        }
+        return this.sessionMapper.toDto(sessions, this.sessionService.findParticipantIds(sessions));
+    }
 }
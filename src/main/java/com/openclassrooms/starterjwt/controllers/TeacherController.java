@@ -1,28 +1,30 @@
 package com.openclassrooms.starterjwt.controllers;
 
-import com.openclassrooms.starterjwt.mapper.TeacherMapper;
+import com.openclassrooms.starterjwt.mapper.TeacherJsonCache;
+import com.openclassrooms.starterjwt.mapper.TeacherJsonCache.JsonBody;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.services.TeacherService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/teacher")
 public class TeacherController {
-    private final TeacherMapper teacherMapper;
+    private final TeacherJsonCache teacherJsonCache;
     private final TeacherService teacherService;
 
 
     public TeacherController(TeacherService teacherService,
-                             TeacherMapper teacherMapper) {
-        this.teacherMapper = teacherMapper;
+                             TeacherJsonCache teacherJsonCache) {
+        this.teacherJsonCache = teacherJsonCache;
         this.teacherService = teacherService;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
             Teacher teacher = this.teacherService.findById(Long.valueOf(id));
 
@@ -30,16 +32,25 @@ public class TeacherController {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.teacherMapper.toDto(teacher));
+            return this.jsonResponse(this.teacherJsonCache.toJson(teacher), request);
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Teacher> teachers = this.teacherService.findAll();
+    public ResponseEntity<?> findAll(WebRequest request) {
+        return this.jsonResponse(this.teacherJsonCache.toJson(this.teacherService.findAll()), request);
+    }
+
+    private ResponseEntity<?> jsonResponse(JsonBody body, WebRequest request) {
+        // Sets the ETag header, and the 304 status on a match
+        if (request.checkNotModified(body.getEtag())) {
+            return null;
+        }
 
-        return ResponseEntity.ok().body(this.teacherMapper.toDto(teachers));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body.getJson());
     }
 }
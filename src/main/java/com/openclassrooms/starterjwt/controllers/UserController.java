@@ -1,13 +1,19 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.mapper.UserMapper;
+import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.SessionService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.Objects;
 
@@ -15,18 +21,27 @@ import java.util.Objects;
 @RestController
 @RequestMapping("/api/user")
 public class UserController {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     private final UserMapper userMapper;
     private final UserService userService;
+    private final SessionMapper sessionMapper;
+    private final SessionService sessionService;
 
 
     public UserController(UserService userService,
-                             UserMapper userMapper) {
+                             UserMapper userMapper,
+                             SessionService sessionService,
+                             SessionMapper sessionMapper) {
         this.userMapper = userMapper;
         this.userService = userService;
+        this.sessionMapper = sessionMapper;
+        this.sessionService = sessionService;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
             User user = this.userService.findById(Long.valueOf(id));
 
@@ -34,6 +49,10 @@ public class UserController {
                 return ResponseEntity.notFound().build();
             }
 
+            if (request.checkNotModified(ETags.weak("user", user.getId(), user.getUpdatedAt()))) {
+                return null;
+            }
+
             return ResponseEntity.ok().body(this.userMapper.toDto(user));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
@@ -61,4 +80,48 @@ public class UserController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    /**
+     * Sessions the user participates in, by date then id, with the total in the {@code X-Total-Count} header.
+     * Only the user or an admin may list them.
+     */
+    @GetMapping("{id}/sessions")
+    public ResponseEntity<?> findSessions(@PathVariable("id") String id,
+                                          @RequestParam(value = "page", required = false) Integer page,
+                                          @RequestParam(value = "size", required = false) Integer size,
+                                          WebRequest request) {
+        try {
+            Long userId = Long.valueOf(id);
+            UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+
+            if (!userDetails.isAdmin() && !Objects.equals(userDetails.getId(), userId)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+
+            return this.sessionsOf(userId, page, size, request);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("me/sessions")
+    public ResponseEntity<?> findMySessions(@RequestParam(value = "page", required = false) Integer page,
+                                            @RequestParam(value = "size", required = false) Integer size,
+                                            WebRequest request) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+
+        return this.sessionsOf(userDetails.getId(), page, size, request);
+    }
+
+    private ResponseEntity<?> sessionsOf(Long userId, Integer page, Integer size, WebRequest request) {
+        Page<Session> sessions = this.sessionService.findByParticipant(userId, page != null ? page : 0, size != null ? size : DEFAULT_PAGE_SIZE);
+
+        if (request.checkNotModified(ETags.weak("sessions", sessions.getTotalElements(), ETags.digest(sessions.getContent())))) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(sessions.getTotalElements()))
+                .body(this.sessionMapper.toDto(sessions.getContent(), this.sessionService.findParticipantIds(sessions.getContent())));
+    }
 }
@@ -0,0 +1,86 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.models.Teacher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serialized JSON bodies of the teachers, with their ETag, so that GET /api/teacher writes bytes
+ * instead of mapping and serializing the same entities on every request.
+ * The teacher snapshot is replaced as a whole when it changes, so a body is reused as long as it was
+ * built from the very same list or entity instance, and rebuilt otherwise.
+ */
+@Component
+public class TeacherJsonCache {
+    private final TeacherMapper teacherMapper;
+
+    private final ObjectMapper objectMapper;
+
+    private volatile Entry<List<Teacher>> all;
+
+    private final Map<Long, Entry<Teacher>> byId = new ConcurrentHashMap<>();
+
+    public TeacherJsonCache(TeacherMapper teacherMapper, ObjectMapper objectMapper) {
+        this.teacherMapper = teacherMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    public JsonBody toJson(List<Teacher> teachers) {
+        Entry<List<Teacher>> current = this.all;
+        if (current == null || current.source != teachers) {
+            current = new Entry<>(teachers, this.serialize(this.teacherMapper.toDto(teachers)));
+            this.all = current;
+        }
+        return current.body;
+    }
+
+    public JsonBody toJson(Teacher teacher) {
+        return this.byId.compute(teacher.getId(), (id, current) -> current != null && current.source == teacher
+                ? current
+                : new Entry<>(teacher, this.serialize(this.teacherMapper.toDto(teacher)))).body;
+    }
+
+    private JsonBody serialize(Object dto) {
+        try {
+            return new JsonBody(this.objectMapper.writeValueAsBytes(dto));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry<S> {
+        private final S source;
+
+        private final JsonBody body;
+
+        private Entry(S source, JsonBody body) {
+            this.source = source;
+            this.body = body;
+        }
+    }
+
+    public static final class JsonBody {
+        private final byte[] json;
+
+        private final String etag;
+
+        private JsonBody(byte[] json) {
+            this.json = json;
+            this.etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+        }
+
+        public byte[] getJson() {
+            return this.json;
+        }
+
+        public String getEtag() {
+            return this.etag;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -16,7 +17,10 @@ import java.util.Date;
 import java.util.List;
 
 @Entity
-@Table(name = "SESSIONS")
+@Table(name = "SESSIONS", indexes = {
+        @Index(name = "IDX_SESSIONS_DATE", columnList = "date, id"),
+        @Index(name = "IDX_SESSIONS_TEACHER_DATE", columnList = "teacher_id, date")
+})
 @EntityListeners(AuditingEntityListener.class)
 @Data
 @Accessors(chain = true)
@@ -41,17 +45,41 @@ public class Session {
     @Size(max = 2500)
     private String description;
 
+    /**
+     * Maximum number of participants, or null for an unlimited session.
+     */
+    @Min(1)
+    private Integer capacity;
+
+    /**
+     * Number of PARTICIPATE rows, maintained by the booking queries of SessionRepository and never written
+     * through the entity.
+     */
+    @Column(name = "participant_count", columnDefinition = "INT NOT NULL DEFAULT 0", insertable = false, updatable = false)
+    private Integer participantCount;
+
     @OneToOne
     @JoinColumn(name = "teacher_id", referencedColumnName = "id")
     private Teacher teacher;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    /**
+     * PARTICIPATE is keyed by (session_id, user_id) in script.sql. A list join table cannot carry a primary
+     * key in the mapping, so generated schemas get the same key as a unique constraint.
+     */
+    @ManyToMany(fetch = FetchType.LAZY)
+    @ToString.Exclude
     @JoinTable(
             name = "PARTICIPATE",
-            joinColumns = @JoinColumn( name = "session_id" ),
-            inverseJoinColumns = @JoinColumn( name = "user_id" ) )
+            joinColumns = @JoinColumn( name = "session_id", nullable = false ),
+            inverseJoinColumns = @JoinColumn( name = "user_id", nullable = false ),
+            uniqueConstraints = @UniqueConstraint(name = "UK_PARTICIPATE_SESSION_USER", columnNames = {"session_id", "user_id"}),
+            indexes = @Index(name = "IDX_PARTICIPATE_USER_SESSION", columnList = "user_id, session_id") )
     private List<User> users;
 
+    @Version
+    @Column(columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
     @CreatedDate
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
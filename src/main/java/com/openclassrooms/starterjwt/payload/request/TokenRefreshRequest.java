@@ -0,0 +1,16 @@
+package com.openclassrooms.starterjwt.payload.request;
+
+import javax.validation.constraints.NotBlank;
+
+public class TokenRefreshRequest {
+	@NotBlank
+	private String refreshToken;
+
+	public String getRefreshToken() {
+		return refreshToken;
+	}
+
+	public void setRefreshToken(String refreshToken) {
+		this.refreshToken = refreshToken;
+	}
+}
@@ -1,9 +1,120 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface SessionRepository  extends JpaRepository<Session, Long> {
+
+    /**
+     * Optional date window and teacher of the listings. A null parameter makes its condition constant, which
+     * the database drops, so a filtered listing is a range scan on IDX_SESSIONS_DATE or IDX_SESSIONS_TEACHER_DATE.
+     */
+    String FILTER = "(:from IS NULL OR s.date >= :from) AND (:to IS NULL OR s.date < :to)"
+            + " AND (:teacherId IS NULL OR s.teacher.id = :teacherId)";
+
+    /**
+     * Filtered listing without a count query; the pageable gives the order and the limit.
+     */
+    @Query("SELECT s FROM Session s WHERE " + FILTER)
+    List<Session> findFiltered(@Param("from") Date from, @Param("to") Date to, @Param("teacherId") Long teacherId, Pageable pageable);
+
+    @Query(value = "SELECT s FROM Session s WHERE " + FILTER,
+            countQuery = "SELECT COUNT(s) FROM Session s WHERE " + FILTER)
+    Page<Session> findFilteredPage(@Param("from") Date from, @Param("to") Date to, @Param("teacherId") Long teacherId, Pageable pageable);
+
+    /**
+     * Keyset pagination on (date, id): returns the sessions strictly after the given cursor,
+     * so the cost of a page does not grow with its position in the table.
+     */
+    @Query("SELECT s FROM Session s WHERE " + FILTER + " AND (s.date > :date OR (s.date = :date AND s.id > :id)) ORDER BY s.date ASC, s.id ASC")
+    List<Session> findAfter(@Param("from") Date from, @Param("to") Date to, @Param("teacherId") Long teacherId,
+                            @Param("date") Date date, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Sessions a user participates in, by date then id, read from PARTICIPATE through its (user_id, session_id) index.
+     */
+    @Query(value = "SELECT s.* FROM SESSIONS s JOIN PARTICIPATE p ON p.session_id = s.id WHERE p.user_id = :userId ORDER BY s.date ASC, s.id ASC",
+            countQuery = "SELECT COUNT(*) FROM PARTICIPATE p WHERE p.user_id = :userId",
+            nativeQuery = true)
+    Page<Session> findByParticipant(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Participant ids of the given sessions, read straight from the join table.
+     */
+    @Query(value = "SELECT p.session_id AS sessionId, p.user_id AS userId FROM PARTICIPATE p WHERE p.session_id IN (:sessionIds)", nativeQuery = true)
+    List<SessionParticipant> findParticipants(@Param("sessionIds") Collection<Long> sessionIds);
+
+    /**
+     * Loads and locks the session for a booking, so that concurrent bookings and cancellations of the
+     * same session see each other's seats and waitlist entries.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Session s WHERE s.id = :id")
+    Optional<Session> findForBooking(@Param("id") Long id);
+
+    @Query(value = "SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = :sessionId", nativeQuery = true)
+    long countParticipants(@Param("sessionId") Long sessionId);
+
+    @Query(value = "SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = :sessionId AND user_id = :userId", nativeQuery = true)
+    long countParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    /**
+     * Adds a single PARTICIPATE row; a duplicate booking violates the (session_id, user_id) primary key.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO PARTICIPATE (session_id, user_id) VALUES (:sessionId, :userId)", nativeQuery = true)
+    int addParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM PARTICIPATE WHERE session_id = :sessionId AND user_id = :userId", nativeQuery = true)
+    int removeParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    /**
+     * Takes a seat: increments the participant counter unless the session is full, in a single statement
+     * that also locks the session row until the booking commits. The version is incremented with the
+     * counter, so cached ETags and concurrent edits of the session see the booking; pending changes are
+     * flushed before and the persistence context is cleared after, since its copies are then stale.
+     *
+     * @return 0 when the session is full
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE SESSIONS SET participant_count = participant_count + 1, version = version + 1 WHERE id = :id AND (capacity IS NULL OR participant_count < capacity)", nativeQuery = true)
+    int incrementParticipantCount(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE SESSIONS SET participant_count = participant_count - 1, version = version + 1 WHERE id = :id AND participant_count > 0", nativeQuery = true)
+    int decrementParticipantCount(@Param("id") Long id);
+
+    /**
+     * Ids of the sessions whose counter differs from their PARTICIPATE rows, read without locking.
+     */
+    @Query(value = "SELECT s.id FROM SESSIONS s"
+            + " WHERE s.participant_count <> (SELECT COUNT(*) FROM PARTICIPATE p WHERE p.session_id = s.id)", nativeQuery = true)
+    List<Number> findDriftingParticipantCounts();
+
+    /**
+     * Resets the counter of a session if it still differs from its PARTICIPATE rows. The version of a
+     * repaired session is incremented, so cached ETags and bookings in flight see the change.
+     *
+     * @return 1 when the session was repaired
+     */
+    @Modifying
+    @Query(value = "UPDATE SESSIONS s SET s.participant_count = (SELECT COUNT(*) FROM PARTICIPATE p WHERE p.session_id = s.id), s.version = s.version + 1"
+            + " WHERE s.id = :id AND s.participant_count <> (SELECT COUNT(*) FROM PARTICIPATE p WHERE p.session_id = s.id)", nativeQuery = true)
+    int reconcileParticipantCount(@Param("id") Long id);
 }
@@ -0,0 +1,44 @@
+package com.openclassrooms.starterjwt.security;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits the login and register attempts, which each cost a BCrypt hash, per client IP and per email.
+ * The IP limit slows down a single source trying many accounts, the email limit many sources
+ * trying a single account.
+ */
+@Component
+public class AuthRateLimiter {
+  private final TokenBucketLimiter byIp;
+
+  private final TokenBucketLimiter byEmail;
+
+  public AuthRateLimiter(@Value("${oc.app.rateLimit.ip.capacity:20}") long ipCapacity,
+                         @Value("${oc.app.rateLimit.ip.refillPerMinute:20}") long ipRefillPerMinute,
+                         @Value("${oc.app.rateLimit.email.capacity:5}") long emailCapacity,
+                         @Value("${oc.app.rateLimit.email.refillPerMinute:5}") long emailRefillPerMinute,
+                         @Value("${oc.app.rateLimit.maxKeys:100000}") long maxKeys) {
+    this(new TokenBucketLimiter(ipCapacity, ipRefillPerMinute, maxKeys),
+        new TokenBucketLimiter(emailCapacity, emailRefillPerMinute, maxKeys));
+  }
+
+  AuthRateLimiter(TokenBucketLimiter byIp, TokenBucketLimiter byEmail) {
+    this.byIp = byIp;
+    this.byEmail = byEmail;
+  }
+
+  /**
+   * @return 0 when the attempt is allowed, otherwise the number of seconds to wait before retrying
+   */
+  public long tryAcquire(String ip, String email) {
+    long waitNanos = byIp.tryAcquire(ip);
+    if (waitNanos == 0 && email != null) {
+      waitNanos = byEmail.tryAcquire(email.toLowerCase(Locale.ROOT));
+    }
+    return waitNanos == 0 ? 0 : Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+  }
+}
@@ -0,0 +1,47 @@
+package com.openclassrooms.starterjwt.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Picks the BCrypt strength whose hashing time on the current hardware is closest to a target,
+ * without going below the BCrypt default. Each extra unit of strength doubles the cost.
+ */
+public final class BCryptStrengthCalibrator {
+  private static final Logger logger = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+
+  static final int MIN_STRENGTH = 10;
+
+  static final int MAX_STRENGTH = 31;
+
+  private static final String SAMPLE_PASSWORD = "calibration-password";
+
+  private BCryptStrengthCalibrator() {
+  }
+
+  public static int calibrate(long targetMs) {
+    BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_STRENGTH);
+    // The first hash also pays the class loading and JIT warm-up
+    encoder.encode(SAMPLE_PASSWORD);
+
+    long start = System.nanoTime();
+    encoder.encode(SAMPLE_PASSWORD);
+    long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+    int strength = strengthFor(elapsedMs, targetMs);
+    logger.info("BCrypt strength {} selected: {} ms at strength {}, target {} ms", strength, elapsedMs, MIN_STRENGTH, targetMs);
+    return strength;
+  }
+
+  static int strengthFor(long elapsedMsAtMinStrength, long targetMs) {
+    int strength = MIN_STRENGTH;
+    long elapsedMs = elapsedMsAtMinStrength;
+    // Go up while the doubled cost stays closer to the target than the current one
+    while (strength < MAX_STRENGTH && elapsedMs * 2 - targetMs < targetMs - elapsedMs) {
+      strength++;
+      elapsedMs *= 2;
+    }
+    return strength;
+  }
+}
@@ -0,0 +1,71 @@
+package com.openclassrooms.starterjwt.security;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * One token bucket per key: {@code capacity} requests in a burst, then one every {@code refillNanos}.
+ * Buckets are updated with a compare-and-set, without locks. A bucket left idle long enough to be full
+ * again is the same as no bucket, so it is evicted, and the number of keys is bounded as well.
+ */
+public class TokenBucketLimiter {
+  private final long capacity;
+
+  private final long refillNanos;
+
+  private final Ticker ticker;
+
+  private final Cache<String, AtomicReference<Bucket>> buckets;
+
+  public TokenBucketLimiter(long capacity, long refillPerMinute, long maxKeys) {
+    this(capacity, refillPerMinute, maxKeys, Ticker.systemTicker());
+  }
+
+  TokenBucketLimiter(long capacity, long refillPerMinute, long maxKeys, Ticker ticker) {
+    this.capacity = capacity;
+    this.refillNanos = TimeUnit.MINUTES.toNanos(1) / refillPerMinute;
+    this.ticker = ticker;
+    this.buckets = Caffeine.newBuilder()
+        .maximumSize(maxKeys)
+        .expireAfterAccess(refillNanos * capacity, TimeUnit.NANOSECONDS)
+        .ticker(ticker)
+        .build();
+  }
+
+  /**
+   * Takes a token from the bucket of the key.
+   *
+   * @return 0 when the request is allowed, otherwise the time in nanoseconds until a token is available
+   */
+  public long tryAcquire(String key) {
+    long now = ticker.read();
+    AtomicReference<Bucket> reference = buckets.get(key, k -> new AtomicReference<>(new Bucket(capacity * refillNanos, now)));
+
+    while (true) {
+      Bucket current = reference.get();
+      // The bucket holds tokens in nanoseconds of refill, so that partial tokens are never lost
+      long available = Math.min(capacity * refillNanos, current.available + Math.max(0, now - current.updatedAt));
+      if (available < refillNanos) {
+        return refillNanos - available;
+      }
+      if (reference.compareAndSet(current, new Bucket(available - refillNanos, Math.max(now, current.updatedAt)))) {
+        return 0;
+      }
+    }
+  }
+
+  private static final class Bucket {
+    private final long available;
+
+    private final long updatedAt;
+
+    private Bucket(long available, long updatedAt) {
+      this.available = available;
+      this.updatedAt = updatedAt;
+    }
+  }
+}
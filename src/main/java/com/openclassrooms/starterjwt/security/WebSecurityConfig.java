@@ -1,6 +1,10 @@
 package com.openclassrooms.starterjwt.security;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -11,6 +15,7 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -25,12 +30,29 @@ import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
     // jsr250Enabled = true,
     prePostEnabled = true)
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
+  private static final String BCRYPT_ID = "bcrypt";
+
   @Autowired
   UserDetailsServiceImpl userDetailsService;
 
   @Autowired
   private AuthEntryPointJwt unauthorizedHandler;
 
+  @Value("${oc.app.passwordEncoder.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+  private int passwordEncoderThreads;
+
+  @Value("${oc.app.passwordEncoder.queueCapacity:100}")
+  private int passwordEncoderQueueCapacity;
+
+  /**
+   * BCrypt strength of new hashes; 0 calibrates it at startup against {@code oc.app.bcrypt.targetMs}.
+   */
+  @Value("${oc.app.bcrypt.strength:0}")
+  private int bcryptStrength;
+
+  @Value("${oc.app.bcrypt.targetMs:250}")
+  private long bcryptTargetMs;
+
   @Bean
   public AuthTokenFilter authenticationJwtTokenFilter() {
     return new AuthTokenFilter();
@@ -47,9 +69,22 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     return super.authenticationManagerBean();
   }
 
+  /**
+   * New hashes are stored as {@code {bcrypt}...} at the configured strength. Hashes without prefix,
+   * or with a lower strength, still match and are rehashed on the next successful login through
+   * {@link UserDetailsServiceImpl#updatePassword}.
+   */
   @Bean
   public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+    int strength = bcryptStrength > 0 ? bcryptStrength : BCryptStrengthCalibrator.calibrate(bcryptTargetMs);
+    BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+
+    Map<String, PasswordEncoder> encoders = new HashMap<>();
+    encoders.put(BCRYPT_ID, bcrypt);
+    DelegatingPasswordEncoder delegatingPasswordEncoder = new DelegatingPasswordEncoder(BCRYPT_ID, encoders);
+    delegatingPasswordEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+
+    return new BoundedPasswordEncoder(delegatingPasswordEncoder, passwordEncoderThreads, passwordEncoderQueueCapacity);
   }
 
   @Override
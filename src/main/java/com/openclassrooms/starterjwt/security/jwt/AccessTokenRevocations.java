@@ -0,0 +1,59 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * In-memory revocation of access tokens, checked on every request without reading the database.
+ * A revocation only has to outlive the tokens it targets, so entries expire after the access token
+ * lifetime and both maps stay as small as the revocations of the last few minutes.
+ */
+@Component
+public class AccessTokenRevocations {
+  /**
+   * Identifiers ({@code jti}) of single revoked tokens.
+   */
+  private final Cache<String, Boolean> revokedIds;
+
+  /**
+   * Per user, the tokens issued until this instant (in ms) are revoked.
+   */
+  private final Cache<String, Long> revokedBefore;
+
+  public AccessTokenRevocations(@Value("${oc.app.jwtExpirationMs}") long jwtExpirationMs) {
+    this.revokedIds = Caffeine.newBuilder().expireAfterWrite(jwtExpirationMs, TimeUnit.MILLISECONDS).build();
+    this.revokedBefore = Caffeine.newBuilder().expireAfterWrite(jwtExpirationMs, TimeUnit.MILLISECONDS).build();
+  }
+
+  public void revoke(Claims claims) {
+    if (claims.getId() != null) {
+      revokedIds.put(claims.getId(), Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Revokes every access token of a user issued until now. Issue times are truncated to the second in
+   * the tokens, so a token issued later within the same second is revoked as well.
+   */
+  public void revokeAll(String username) {
+    revokedBefore.put(username, System.currentTimeMillis());
+  }
+
+  public boolean isRevoked(Claims claims) {
+    if (claims.getId() != null && revokedIds.getIfPresent(claims.getId()) != null) {
+      return true;
+    }
+
+    Long before = revokedBefore.getIfPresent(claims.getSubject());
+    Date issuedAt = claims.getIssuedAt();
+    return before != null && issuedAt != null && issuedAt.getTime() <= before;
+  }
+}
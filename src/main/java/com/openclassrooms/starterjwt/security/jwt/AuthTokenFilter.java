@@ -10,6 +10,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -19,13 +20,28 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 
+import io.jsonwebtoken.Claims;
+
 public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
   private JwtUtils jwtUtils;
 
+  @Autowired
+  private VerifiedTokenCache verifiedTokenCache;
+
+  @Autowired
+  private AccessTokenRevocations accessTokenRevocations;
+
   @Autowired
   private UserDetailsServiceImpl userDetailsService;
 
+  /**
+   * When enabled, the user is rebuilt from the token claims instead of being loaded from USERS:
+   * changes to a user (including its deletion) are only seen once its current tokens expire.
+   */
+  @Value("${oc.app.jwtStateless:false}")
+  private boolean jwtStateless;
+
   private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
   @Override
@@ -33,10 +49,13 @@ public class AuthTokenFilter extends OncePerRequestFilter {
       throws ServletException, IOException {
     try {
       String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+      Claims claims = jwt != null
+          ? verifiedTokenCache.verify(jwt).filter(verified -> !accessTokenRevocations.isRevoked(verified)).orElse(null)
+          : null;
+      if (claims != null) {
+        UserDetails userDetails = jwtStateless
+            ? jwtUtils.getUserDetailsFromClaims(claims)
+            : userDetailsService.loadUserByUsername(claims.getSubject());
         UsernamePasswordAuthenticationToken authentication =
             new UsernamePasswordAuthenticationToken(
                 userDetails,
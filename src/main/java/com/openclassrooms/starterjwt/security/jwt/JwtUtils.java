@@ -1,6 +1,15 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
+import java.nio.file.Paths;
+import java.security.Key;
+import java.security.PublicKey;
 import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +20,7 @@ import org.springframework.stereotype.Component;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
 
 @Component
 public class JwtUtils {
@@ -22,26 +32,106 @@ public class JwtUtils {
   @Value("${oc.app.jwtExpirationMs}")
   private int jwtExpirationMs;
 
+  /**
+   * HS512 signs with {@code oc.app.jwtSecret}; an RSA or EC algorithm (e.g. RS256, ES256) signs with
+   * the PEM private key {@code oc.app.jwtPrivateKey} under the key id {@code oc.app.jwtKeyId}, and verifies
+   * with the {@code <kid>.pem} public keys of {@code oc.app.jwtPublicKeys}. A node without private key only
+   * verifies tokens. Startup fails when the public keys directory is not set, or when the signing key id
+   * is missing or has no public key, since the tokens of the node could not be verified.
+   */
+  @Value("${oc.app.jwtAlgorithm:HS512}")
+  private SignatureAlgorithm jwtAlgorithm = SignatureAlgorithm.HS512;
+
+  @Value("${oc.app.jwtPrivateKey:}")
+  private String jwtPrivateKey = "";
+
+  @Value("${oc.app.jwtKeyId:}")
+  private String jwtKeyId = "";
+
+  @Value("${oc.app.jwtPublicKeys:}")
+  private String jwtPublicKeys = "";
+
+  private static final String ID_CLAIM = "id";
+  private static final String FIRST_NAME_CLAIM = "firstName";
+  private static final String LAST_NAME_CLAIM = "lastName";
+  private static final String ADMIN_CLAIM = "admin";
+
+  /**
+   * Keys are loaded once, and the parser is built once and shared by all requests: parsing does not
+   * modify the parser.
+   */
+  private Key signingKey;
+
+  private JwtParser jwtParser;
+
+  @PostConstruct
+  void init() {
+    if (jwtAlgorithm.isHmac()) {
+      signingKey = new SecretKeySpec(TextCodec.BASE64.decode(jwtSecret), jwtAlgorithm.getJcaName());
+      jwtParser = Jwts.parser().setSigningKey(signingKey);
+      return;
+    }
+
+    if (jwtPublicKeys.isEmpty()) {
+      throw new IllegalStateException("oc.app.jwtPublicKeys must be set for " + jwtAlgorithm);
+    }
+    String keyAlgorithm = jwtAlgorithm.isRsa() ? "RSA" : "EC";
+    signingKey = jwtPrivateKey.isEmpty() ? null : PemKeys.readPrivateKey(Paths.get(jwtPrivateKey), keyAlgorithm);
+    Map<String, PublicKey> verificationKeys = PemKeys.readPublicKeys(Paths.get(jwtPublicKeys), keyAlgorithm);
+    if (signingKey != null && jwtKeyId.isEmpty()) {
+      throw new IllegalStateException("oc.app.jwtKeyId must be set to sign with " + jwtAlgorithm);
+    }
+    if (signingKey != null && !verificationKeys.containsKey(jwtKeyId)) {
+      throw new IllegalStateException("No public key " + jwtKeyId + ".pem in " + jwtPublicKeys);
+    }
+    jwtParser = Jwts.parser().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+      @Override
+      public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        if (!jwtAlgorithm.getValue().equals(header.getAlgorithm())) {
+          throw new UnsupportedJwtException("Unexpected JWT algorithm " + header.getAlgorithm());
+        }
+        PublicKey key = verificationKeys.get(header.getKeyId());
+        if (key == null) {
+          throw new SignatureException("Unknown JWT key id " + header.getKeyId());
+        }
+        return key;
+      }
+    });
+  }
+
   public String generateJwtToken(Authentication authentication) {
+    return generateJwtToken((UserDetailsImpl) authentication.getPrincipal());
+  }
 
-    UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+  /**
+   * Each token gets a unique id ({@code jti}) so that it can be revoked on its own.
+   */
+  public String generateJwtToken(UserDetailsImpl userPrincipal) {
+    if (signingKey == null) {
+      throw new IllegalStateException("No JWT private key configured, this node only verifies tokens");
+    }
 
     return Jwts.builder()
+        .setHeaderParam(JwsHeader.KEY_ID, jwtAlgorithm.isHmac() ? null : jwtKeyId)
+        .setId(UUID.randomUUID().toString())
         .setSubject((userPrincipal.getUsername()))
+        .claim(ID_CLAIM, userPrincipal.getId())
+        .claim(FIRST_NAME_CLAIM, userPrincipal.getFirstName())
+        .claim(LAST_NAME_CLAIM, userPrincipal.getLastName())
+        .claim(ADMIN_CLAIM, userPrincipal.getAdmin())
         .setIssuedAt(new Date())
         .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(SignatureAlgorithm.HS512, jwtSecret)
+        .signWith(jwtAlgorithm, signingKey)
         .compact();
   }
 
-  public String getUserNameFromJwtToken(String token) {
-    return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
-  }
-
-  public boolean validateJwtToken(String authToken) {
+  /**
+   * Verifies the token and returns its claims, or an empty result when the token is invalid,
+   * so that the signature is only checked once per request.
+   */
+  public Optional<Claims> parseJwtToken(String authToken) {
     try {
-      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-      return true;
+      return Optional.of(jwtParser.parseClaimsJws(authToken).getBody());
     } catch (SignatureException e) {
       logger.error("Invalid JWT signature: {}", e.getMessage());
     } catch (MalformedJwtException e) {
@@ -54,6 +144,21 @@ public class JwtUtils {
       logger.error("JWT claims string is empty: {}", e.getMessage());
     }
 
-    return false;
+    return Optional.empty();
+  }
+
+  /**
+   * Rebuilds the user from the claims of a verified token, without reading the database.
+   * The password is not part of the token and is left null.
+   */
+  public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+    return UserDetailsImpl
+            .builder()
+            .id(claims.get(ID_CLAIM, Long.class))
+            .username(claims.getSubject())
+            .firstName(claims.get(FIRST_NAME_CLAIM, String.class))
+            .lastName(claims.get(LAST_NAME_CLAIM, String.class))
+            .admin(claims.get(ADMIN_CLAIM, Boolean.class))
+            .build();
   }
 }
@@ -0,0 +1,76 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Claims of the tokens already verified, keyed by the SHA-256 digest of the token, so that a client
+ * reusing its token only pays a hash and a lookup. An entry lives until the expiry of its token.
+ */
+@Component
+public class VerifiedTokenCache {
+  private final JwtUtils jwtUtils;
+
+  private final Cache<String, Claims> cache;
+
+  @Autowired
+  public VerifiedTokenCache(JwtUtils jwtUtils, @Value("${oc.app.jwtCacheSize:10000}") long maximumSize) {
+    this(jwtUtils, maximumSize, Ticker.systemTicker());
+  }
+
+  VerifiedTokenCache(JwtUtils jwtUtils, long maximumSize, Ticker ticker) {
+    this.jwtUtils = jwtUtils;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfter(new TokenExpiry())
+        .ticker(ticker)
+        .build();
+  }
+
+  /**
+   * Returns the claims of a valid token, verifying its signature only when it is not cached yet.
+   */
+  public Optional<Claims> verify(String token) {
+    return Optional.ofNullable(cache.get(TokenDigest.sha256(token), key -> jwtUtils.parseJwtToken(token).orElse(null)));
+  }
+
+  /**
+   * Drops a token, so that its next use is verified again.
+   */
+  public void revoke(String token) {
+    cache.invalidate(TokenDigest.sha256(token));
+  }
+
+  private static class TokenExpiry implements Expiry<String, Claims> {
+    @Override
+    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+      Date expiration = claims.getExpiration();
+      if (expiration == null) {
+        return 0;
+      }
+      return Math.max(0, TimeUnit.MILLISECONDS.toNanos(expiration.getTime() - System.currentTimeMillis()));
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -5,6 +5,7 @@ import java.util.HashSet;
 import java.util.Objects;
 
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -32,8 +33,21 @@ public class UserDetailsImpl implements UserDetails {
   @JsonIgnore
   private String password;  
   
+  public static final String ROLE_USER = "ROLE_USER";
+
+  public static final String ROLE_ADMIN = "ROLE_ADMIN";
+
   public Collection<? extends GrantedAuthority> getAuthorities() {        
-      return new HashSet<GrantedAuthority>();
+      HashSet<GrantedAuthority> authorities = new HashSet<GrantedAuthority>();
+      authorities.add(new SimpleGrantedAuthority(ROLE_USER));
+      if (isAdmin()) {
+        authorities.add(new SimpleGrantedAuthority(ROLE_ADMIN));
+      }
+      return authorities;
+  }
+
+  public boolean isAdmin() {
+    return Boolean.TRUE.equals(admin);
   }
 
   @Override
@@ -1,6 +1,9 @@
 package com.openclassrooms.starterjwt.security.services;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -10,7 +13,13 @@ import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
+  /**
+   * Bounded, time-limited cache of the user details by email; size, TTL and statistics are
+   * configured by {@code spring.cache.caffeine.spec}, hit/miss counts are exposed as {@code cache.gets}.
+   */
+  public static final String USER_DETAILS_CACHE = "userDetails";
+
   UserRepository userRepository;
 
   UserDetailsServiceImpl(UserRepository userRepository) {
@@ -18,6 +27,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
   }
 
   @Override
+  @Cacheable(cacheNames = USER_DETAILS_CACHE)
   @Transactional
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
     User user = userRepository.findByEmail(username)
@@ -29,8 +39,38 @@ public class UserDetailsServiceImpl implements UserDetailsService {
             .username(user.getEmail())
             .lastName(user.getLastName())
             .firstName(user.getFirstName())
+            .admin(user.isAdmin())
             .password(user.getPassword())
             .build();
   }
 
+  /**
+   * Stores the rehashed password of a user after a successful login, when its hash used an older
+   * encoding or a lower BCrypt strength.
+   */
+  @Override
+  @CacheEvict(cacheNames = USER_DETAILS_CACHE, key = "#user.username")
+  @Transactional
+  public UserDetails updatePassword(UserDetails user, String newPassword) {
+    userRepository.updatePassword(user.getUsername(), newPassword);
+
+    UserDetailsImpl userDetails = (UserDetailsImpl) user;
+    return UserDetailsImpl
+            .builder()
+            .id(userDetails.getId())
+            .username(userDetails.getUsername())
+            .lastName(userDetails.getLastName())
+            .firstName(userDetails.getFirstName())
+            .admin(userDetails.getAdmin())
+            .password(newPassword)
+            .build();
+  }
+
+  /**
+   * Drops the cached details of a user, to be called whenever the user is deleted or its credentials change.
+   */
+  @CacheEvict(cacheNames = USER_DETAILS_CACHE)
+  public void evict(String username) {
+  }
+
 }
@@ -0,0 +1,93 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.UnauthorizedException;
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.AccessTokenRevocations;
+import com.openclassrooms.starterjwt.security.jwt.TokenDigest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Opaque, single-use refresh tokens: each exchange revokes the presented token and issues a new one.
+ * Presenting a token that was already exchanged means it leaked, so all the tokens of its user are revoked.
+ */
+@Service
+public class RefreshTokenService {
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final UserRepository userRepository;
+
+    private final AccessTokenRevocations accessTokenRevocations;
+
+    @Value("${oc.app.jwtRefreshExpirationMs:2592000000}")
+    private long refreshExpirationMs = 2592000000L;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserRepository userRepository,
+                               AccessTokenRevocations accessTokenRevocations) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.accessTokenRevocations = accessTokenRevocations;
+    }
+
+    /**
+     * Issues a new refresh token for the user and returns it; only its digest is stored.
+     */
+    @Transactional
+    public String create(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        this.refreshTokenRepository.deleteExpiredByUserId(userId, now);
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        this.secureRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        this.refreshTokenRepository.save(new RefreshToken()
+                .setTokenHash(TokenDigest.sha256(token))
+                .setUser(this.userRepository.getById(userId))
+                .setExpiryDate(now.plus(this.refreshExpirationMs, ChronoUnit.MILLIS)));
+
+        return token;
+    }
+
+    /**
+     * Revokes the presented token and returns its user, who can then be issued a new pair of tokens.
+     */
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public User consume(String token) {
+        RefreshToken refreshToken = this.refreshTokenRepository.findByTokenHash(TokenDigest.sha256(token))
+                .orElseThrow(UnauthorizedException::new);
+        User user = refreshToken.getUser();
+
+        if (this.refreshTokenRepository.revoke(refreshToken.getId()) == 0) {
+            this.refreshTokenRepository.revokeAllByUserId(user.getId());
+            this.accessTokenRevocations.revokeAll(user.getEmail());
+            throw new UnauthorizedException();
+        }
+
+        if (refreshToken.getExpiryDate().isBefore(LocalDateTime.now())) {
+            throw new UnauthorizedException();
+        }
+
+        return user;
+    }
+
+    @Transactional
+    public void revoke(String token) {
+        this.refreshTokenRepository.findByTokenHash(TokenDigest.sha256(token))
+                .ifPresent(refreshToken -> this.refreshTokenRepository.revoke(refreshToken.getId()));
+    }
+}
@@ -0,0 +1,20 @@
+package com.openclassrooms.starterjwt.services;
+
+import lombok.Value;
+
+import java.util.Date;
+
+/**
+ * Criteria of the session listings: sessions dated in [{@code from}, {@code to}) and given by
+ * {@code teacherId}. A null criterion does not filter.
+ */
+@Value
+public class SessionFilter {
+    public static final SessionFilter NONE = new SessionFilter(null, null, null);
+
+    Date from;
+
+    Date to;
+
+    Long teacherId;
+}
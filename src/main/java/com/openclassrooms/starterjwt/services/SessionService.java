@@ -1,28 +1,70 @@
 package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.Session;
-import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.SessionParticipant;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
+@Log4j2
 public class SessionService {
+    private static final Sort LIST_ORDER = Sort.by("date", "id");
+
     private final SessionRepository sessionRepository;
 
     private final UserRepository userRepository;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final WaitlistRepository waitlistRepository;
+
+    @Value("${oc.app.session.maxListSize:500}")
+    private int maxListSize = 500;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${oc.app.session.maxPageSize:100}")
+    private int maxPageSize = 100;
+
+    @Value("${oc.app.session.bookingAttempts:10}")
+    private int bookingAttempts = 10;
+
+    public SessionService(SessionRepository sessionRepository,
+                          UserRepository userRepository,
+                          WaitlistRepository waitlistRepository,
+                          PlatformTransactionManager transactionManager) {
         this.sessionRepository = sessionRepository;
         this.userRepository = userRepository;
+        this.waitlistRepository = waitlistRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public Session create(Session session) {
+        session.setId(null);
+        session.setVersion(null);
+        session.setUsers(null);
         return this.sessionRepository.save(session);
     }
 
@@ -30,49 +72,255 @@ public class SessionService {
         this.sessionRepository.deleteById(id);
     }
 
-    public List<Session> findAll() {
-        return this.sessionRepository.findAll();
+    /**
+     * Unpaged listing, capped to the first {@code oc.app.session.maxListSize} sessions by date.
+     * When the cap is reached and the filter has no start date, the listing starts now instead, so that
+     * past sessions never crowd out the upcoming ones; older sessions remain available through the pages.
+     * The total is only counted when the cap is reached, otherwise it is the size of the list.
+     */
+    public Page<Session> findAll(SessionFilter filter) {
+        this.validate(filter);
+
+        PageRequest firstPage = PageRequest.of(0, this.maxListSize, LIST_ORDER);
+        Page<Session> sessions = this.sessionRepository.findFilteredPage(filter.getFrom(), filter.getTo(),
+                filter.getTeacherId(), firstPage);
+
+        Date now = new Date();
+        if (sessions.hasNext() && filter.getFrom() == null && (filter.getTo() == null || filter.getTo().after(now))) {
+            return this.sessionRepository.findFilteredPage(now, filter.getTo(), filter.getTeacherId(), firstPage);
+        }
+        return sessions;
+    }
+
+    public Page<Session> findPage(SessionFilter filter, int page, int size) {
+        this.validate(filter);
+        if (page < 0) {
+            throw new BadRequestException();
+        }
+
+        return this.sessionRepository.findFilteredPage(filter.getFrom(), filter.getTo(), filter.getTeacherId(),
+                PageRequest.of(page, this.pageSize(size), LIST_ORDER));
+    }
+
+    /**
+     * Keyset listing: the sessions following the (date, id) cursor of the last session already read.
+     * Without a cursor, returns the first page.
+     */
+    public List<Session> findAfter(SessionFilter filter, Date date, Long id, int size) {
+        this.validate(filter);
+        if (date == null || id == null) {
+            return this.findFirst(filter, this.pageSize(size));
+        }
+
+        return this.sessionRepository.findAfter(filter.getFrom(), filter.getTo(), filter.getTeacherId(),
+                date, id, PageRequest.of(0, this.pageSize(size)));
+    }
+
+    public Page<Session> findByParticipant(Long userId, int page, int size) {
+        if (page < 0) {
+            throw new BadRequestException();
+        }
+
+        return this.sessionRepository.findByParticipant(userId, PageRequest.of(page, this.pageSize(size)));
     }
 
     public Session getById(Long id) {
         return this.sessionRepository.findById(id).orElse(null);
     }
 
+    /**
+     * Participant ids of each session, keyed by session id, in a single query on the join table.
+     * Sessions without participants are absent from the map.
+     */
+    public Map<Long, List<Long>> findParticipantIds(List<Session> sessions) {
+        if (sessions.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<Long> sessionIds = sessions.stream().map(Session::getId).collect(Collectors.toList());
+
+        return this.sessionRepository.findParticipants(sessionIds).stream()
+                .collect(Collectors.groupingBy(SessionParticipant::getSessionId,
+                        Collectors.mapping(SessionParticipant::getUserId, Collectors.toList())));
+    }
+
+    public List<Long> findParticipantIds(Long sessionId) {
+        return this.sessionRepository.findParticipants(Collections.singletonList(sessionId)).stream()
+                .map(SessionParticipant::getUserId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Copies the editable fields onto the stored session; its participants are left untouched.
+     * When the client sends the version it read, an edit based on a stale copy is rejected.
+     * Seats added by a raised capacity go to the head of the waitlist.
+     */
     public Session update(Long id, Session session) {
-        session.setId(id);
-        return this.sessionRepository.save(session);
+        return this.inBookingTransaction(() -> {
+            // Locked like a booking, so that the version check and a capacity change see the current seats
+            Session existing = this.sessionRepository.findForBooking(id).orElseThrow(NotFoundException::new);
+            if (session.getVersion() != null && !session.getVersion().equals(existing.getVersion())) {
+                throw new ConflictException();
+            }
+
+            existing.setName(session.getName())
+                    .setDate(session.getDate())
+                    .setDescription(session.getDescription())
+                    .setCapacity(session.getCapacity())
+                    .setTeacher(session.getTeacher());
+            Session saved = this.sessionRepository.save(existing);
+
+            if (this.promoteWaitlist(id) == 0) {
+                return saved;
+            }
+            // The counter update cleared the persistence context
+            return this.sessionRepository.findById(id).orElseThrow(NotFoundException::new);
+        });
+    }
+
+    /**
+     * Books the user with a single insert into PARTICIPATE; the (session_id, user_id) primary key
+     * rejects a second booking of the same user. The seat is taken on the participant counter of the
+     * session; when the session is full, or users are already waiting for a seat, the user is queued
+     * on its waitlist instead.
+     */
+    public BookingStatus participate(Long id, Long userId) {
+        return this.inBookingTransaction(() -> this.book(id, userId));
+    }
+
+    /**
+     * Cancels a booking, promoting the head of the waitlist into the freed seat, or removes the
+     * user from the waitlist.
+     */
+    public void noLongerParticipate(Long id, Long userId) {
+        this.inBookingTransaction(() -> {
+            this.cancel(id, userId);
+            return null;
+        });
+    }
+
+    /**
+     * Resets the participant counters that drifted from PARTICIPATE, e.g. after rows were changed outside
+     * of the booking path. Runs at startup, which also fills the counters of an existing database, then
+     * every {@code oc.app.session.reconcileMs}. The drifting sessions are found without locking, then each
+     * one is repaired in its own short transaction so that bookings are only held up on that row.
+     *
+     * @return the number of repaired sessions
+     */
+    @Scheduled(fixedDelayString = "${oc.app.session.reconcileMs:3600000}")
+    public int reconcileParticipantCounts() {
+        int repaired = 0;
+        for (Number id : this.sessionRepository.findDriftingParticipantCounts()) {
+            Integer updated = this.transactionTemplate.execute(status -> this.sessionRepository.reconcileParticipantCount(id.longValue()));
+            repaired += updated != null ? updated : 0;
+        }
+
+        if (repaired > 0) {
+            log.warn("Repaired the participant count of {} sessions", repaired);
+        }
+        return repaired;
+    }
+
+    /**
+     * Booking operations are serialized on the session row by the counter updates. The losers of a race
+     * that still fails (stale version of an edited session, or deadlock victims on the session row)
+     * roll back and retry against the new state, up to {@code oc.app.session.bookingAttempts} times.
+     */
+    private <T> T inBookingTransaction(Supplier<T> operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return this.transactionTemplate.execute(status -> operation.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= this.bookingAttempts) {
+                    throw new ConflictException();
+                }
+            }
+        }
     }
 
-    public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        User user = this.userRepository.findById(userId).orElse(null);
-        if (session == null || user == null) {
+    private BookingStatus book(Long id, Long userId) {
+        Session session = this.sessionRepository.findForBooking(id).orElseThrow(NotFoundException::new);
+        if (!this.userRepository.existsById(userId)) {
             throw new NotFoundException();
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(alreadyParticipate) {
+        // The session row is locked, so the waitlist cannot be emptied between the check and the booking
+        if (this.waitlistRepository.existsBySessionId(id) || this.sessionRepository.incrementParticipantCount(id) == 0) {
+            if (this.sessionRepository.countParticipant(id, userId) > 0) {
+                throw new BadRequestException();
+            }
+
+            try {
+                this.waitlistRepository.save(new WaitlistEntry()
+                        .setSession(session)
+                        .setUser(this.userRepository.getById(userId)));
+            } catch (DataIntegrityViolationException e) {
+                throw new BadRequestException();
+            }
+
+            return BookingStatus.WAITLISTED;
+        }
+
+        try {
+            this.sessionRepository.addParticipant(id, userId);
+        } catch (DataIntegrityViolationException e) {
+            // Rolls the counter increment back with the transaction
             throw new BadRequestException();
         }
 
-        session.getUsers().add(user);
+        return BookingStatus.BOOKED;
+    }
+
+    private void cancel(Long id, Long userId) {
+        Session session = this.sessionRepository.findForBooking(id).orElseThrow(NotFoundException::new);
 
-        this.sessionRepository.save(session);
+        if (this.sessionRepository.removeParticipant(id, userId) > 0) {
+            this.sessionRepository.decrementParticipantCount(id);
+            if (session.getCapacity() != null) {
+                this.promoteWaitlist(id);
+            }
+            return;
+        }
+
+        if (this.waitlistRepository.deleteBySessionIdAndUserId(id, userId) == 0) {
+            throw new BadRequestException();
+        }
     }
 
-    public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        if (session == null) {
-            throw new NotFoundException();
+    /**
+     * Books the head of the waitlist into each free seat, in queue order.
+     *
+     * @return the number of promoted users
+     */
+    private int promoteWaitlist(Long id) {
+        int promoted = 0;
+        Optional<WaitlistEntry> head;
+        // The capacity may have been lowered below the remaining participants
+        while ((head = this.waitlistRepository.findFirstBySessionIdOrderByIdAsc(id)).isPresent()
+                && this.sessionRepository.incrementParticipantCount(id) > 0) {
+            this.sessionRepository.addParticipant(id, head.get().getUser().getId());
+            this.waitlistRepository.delete(head.get());
+            promoted++;
         }
+        return promoted;
+    }
+
+    private List<Session> findFirst(SessionFilter filter, int size) {
+        return this.sessionRepository.findFiltered(filter.getFrom(), filter.getTo(), filter.getTeacherId(),
+                PageRequest.of(0, size, LIST_ORDER));
+    }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(!alreadyParticipate) {
+    private void validate(SessionFilter filter) {
+        if (filter.getFrom() != null && filter.getTo() != null && !filter.getFrom().before(filter.getTo())) {
             throw new BadRequestException();
         }
+    }
 
-        session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
+    private int pageSize(int size) {
+        if (size < 1) {
+            throw new BadRequestException();
+        }
 
-        this.sessionRepository.save(session);
+        return Math.min(size, this.maxPageSize);
     }
 }
@@ -2,23 +2,82 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Teachers rarely change, so they are served from an in-memory snapshot instead of the TEACHERS table.
+ * The snapshot is loaded on first use, then replaced as a whole by {@link #refresh()} every
+ * {@code oc.app.teacher.refreshMs}, and as soon as a lookup finds a teacher missing from it. Readers never lock.
+ */
 @Service
 public class TeacherService {
+    private static final Sort CATALOGUE_ORDER = Sort.by("id");
+
     private final TeacherRepository teacherRepository;
 
+    private volatile Snapshot snapshot;
+
     public TeacherService(TeacherRepository teacherRepository) {
         this.teacherRepository = teacherRepository;
     }
 
     public List<Teacher> findAll() {
-        return this.teacherRepository.findAll();
+        return this.snapshot().teachers;
     }
 
+    /**
+     * A teacher inserted since the last load is read from TEACHERS, which also refreshes the snapshot.
+     */
     public Teacher findById(Long id) {
-        return this.teacherRepository.findById(id).orElse(null);
+        Teacher teacher = this.snapshot().teachersById.get(id);
+        if (teacher != null) {
+            return teacher;
+        }
+
+        teacher = this.teacherRepository.findById(id).orElse(null);
+        if (teacher != null) {
+            this.refresh();
+        }
+        return teacher;
+    }
+
+    @Scheduled(fixedDelayString = "${oc.app.teacher.refreshMs:300000}", initialDelayString = "${oc.app.teacher.refreshMs:300000}")
+    public void refresh() {
+        this.snapshot = this.load();
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = this.snapshot;
+        if (current == null) {
+            // Concurrent first calls may both load, the last one wins
+            current = this.load();
+            this.snapshot = current;
+        }
+        return current;
+    }
+
+    private Snapshot load() {
+        return new Snapshot(this.teacherRepository.findAll(CATALOGUE_ORDER));
+    }
+
+    private static final class Snapshot {
+        private final List<Teacher> teachers;
+
+        private final Map<Long, Teacher> teachersById;
+
+        private Snapshot(List<Teacher> teachers) {
+            Map<Long, Teacher> byId = new LinkedHashMap<>();
+            teachers.forEach(teacher -> byId.put(teacher.getId(), teacher));
+
+            this.teachers = Collections.unmodifiableList(teachers);
+            this.teachersById = Collections.unmodifiableMap(byId);
+        }
     }
 }
@@ -2,21 +2,29 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 import org.springframework.stereotype.Service;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
 
-    public UserService(UserRepository userRepository) {
+    private final UserDetailsServiceImpl userDetailsService;
+
+    public UserService(UserRepository userRepository, UserDetailsServiceImpl userDetailsService) {
         this.userRepository = userRepository;
+        this.userDetailsService = userDetailsService;
     }
 
     public void delete(Long id) {
-        this.userRepository.deleteById(id);
+        this.userRepository.findById(id).ifPresent(user -> {
+            this.userRepository.delete(user);
+            this.userDetailsService.evict(user.getEmail());
+        });
     }
 
     public User findById(Long id) {
         return this.userRepository.findById(id).orElse(null);
     }
+
 }
@@ -1,12 +1,21 @@
 package com.openclassrooms.starterjwt.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.exception.UnauthorizedException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.payload.request.TokenRefreshRequest;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.AuthRateLimiter;
+import com.openclassrooms.starterjwt.security.jwt.AccessTokenRevocations;
 import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.jwt.VerifiedTokenCache;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import com.openclassrooms.starterjwt.services.RefreshTokenService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.impl.DefaultClaims;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +32,7 @@ import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -46,6 +56,21 @@ public class AuthControllerIntegrationTest {
     @MockBean
     private UserRepository userRepository;
 
+    @MockBean
+    private RefreshTokenService refreshTokenService;
+
+    @MockBean
+    private UserDetailsServiceImpl userDetailsService;
+
+    @MockBean
+    private AuthRateLimiter authRateLimiter;
+
+    @MockBean
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @MockBean
+    private AccessTokenRevocations accessTokenRevocations;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -84,6 +109,7 @@ public class AuthControllerIntegrationTest {
                 .username(testUser.getEmail())
                 .firstName(testUser.getFirstName())
                 .lastName(testUser.getLastName())
+                .admin(testUser.isAdmin())
                 .build();
         when(authentication.getPrincipal()).thenReturn(userDetails);
     }
@@ -93,7 +119,7 @@ public class AuthControllerIntegrationTest {
         // Configuration des mocks
         when(authenticationManager.authenticate(any())).thenReturn(authentication);
         when(jwtUtils.generateJwtToken(any(Authentication.class))).thenReturn("test-jwt-token");
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(refreshTokenService.create(1L)).thenReturn("test-refresh-token");
 
         // Exécution du test et vérification
         mockMvc.perform(post("/api/auth/login")
@@ -101,6 +127,7 @@ public class AuthControllerIntegrationTest {
                         .content(objectMapper.writeValueAsString(loginRequest)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").value("test-jwt-token"))
+                .andExpect(jsonPath("$.refreshToken").value("test-refresh-token"))
                 .andExpect(jsonPath("$.id").value(testUser.getId()))
                 .andExpect(jsonPath("$.username").value(testUser.getEmail())) // Changé de "$.email" à "$.username"
                 .andExpect(jsonPath("$.firstName").value(testUser.getFirstName()))
@@ -110,7 +137,148 @@ public class AuthControllerIntegrationTest {
         // Vérification des appels aux services
         verify(authenticationManager).authenticate(any());
         verify(jwtUtils).generateJwtToken(any(Authentication.class));
-        verify(userRepository).findByEmail("test@example.com");
+        // Le statut admin provient de l'utilisateur déjà chargé par l'authentification
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    public void testLoginAdmin() throws Exception {
+        // Configuration des mocks
+        Authentication adminAuthentication = mock(Authentication.class);
+        when(adminAuthentication.getPrincipal()).thenReturn(UserDetailsImpl.builder()
+                .id(2L)
+                .username("yoga@studio.com")
+                .firstName("Admin")
+                .lastName("Admin")
+                .admin(true)
+                .build());
+        when(authenticationManager.authenticate(any())).thenReturn(adminAuthentication);
+        when(jwtUtils.generateJwtToken(any(Authentication.class))).thenReturn("test-jwt-token");
+
+        // Exécution du test et vérification
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.admin").value(true));
+
+        // Vérification des appels aux services
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void testLoginRateLimited() throws Exception {
+        // Configuration des mocks : trop de tentatives pour cette adresse
+        when(authRateLimiter.tryAcquire(anyString(), eq("test@example.com"))).thenReturn(12L);
+
+        // Exécution du test et vérification
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "12"));
+
+        // Aucun hachage BCrypt n'est lancé
+        verify(authenticationManager, never()).authenticate(any());
+    }
+
+    @Test
+    public void testRegisterRateLimited() throws Exception {
+        // Configuration des mocks
+        when(authRateLimiter.tryAcquire(anyString(), eq("new@example.com"))).thenReturn(3L);
+
+        // Exécution du test et vérification
+        mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(signupRequest)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"));
+
+        verify(passwordEncoder, never()).encode(anyString());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    public void testRefreshToken() throws Exception {
+        // Configuration des mocks
+        TokenRefreshRequest refreshRequest = new TokenRefreshRequest();
+        refreshRequest.setRefreshToken("old-refresh-token");
+        UserDetailsImpl userDetails = UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@example.com")
+                .firstName("Test")
+                .lastName("User")
+                .admin(false)
+                .build();
+        when(refreshTokenService.consume("old-refresh-token")).thenReturn(testUser);
+        when(userDetailsService.loadUserByUsername("test@example.com")).thenReturn(userDetails);
+        when(jwtUtils.generateJwtToken(userDetails)).thenReturn("new-jwt-token");
+        when(refreshTokenService.create(1L)).thenReturn("new-refresh-token");
+
+        // Exécution du test et vérification
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("new-jwt-token"))
+                .andExpect(jsonPath("$.refreshToken").value("new-refresh-token"));
+
+        // Vérification des appels aux services : pas de vérification du mot de passe
+        verify(authenticationManager, never()).authenticate(any());
+    }
+
+    @Test
+    public void testRefreshTokenRejected() throws Exception {
+        // Configuration des mocks
+        TokenRefreshRequest refreshRequest = new TokenRefreshRequest();
+        refreshRequest.setRefreshToken("reused-refresh-token");
+        when(refreshTokenService.consume("reused-refresh-token")).thenThrow(new UnauthorizedException());
+
+        // Exécution du test et vérification
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshRequest)))
+                .andExpect(status().isUnauthorized());
+
+        verify(refreshTokenService, never()).create(any());
+    }
+
+    @Test
+    public void testLogout() throws Exception {
+        // Configuration des mocks
+        TokenRefreshRequest logoutRequest = new TokenRefreshRequest();
+        logoutRequest.setRefreshToken("refresh-token");
+
+        // Exécution du test et vérification
+        mockMvc.perform(post("/api/auth/logout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(logoutRequest)))
+                .andExpect(status().isOk());
+
+        // Vérification des appels aux services
+        verify(refreshTokenService).revoke("refresh-token");
+        verify(verifiedTokenCache, never()).revoke(any());
+    }
+
+    @Test
+    public void testLogoutWithAccessToken() throws Exception {
+        // Configuration des mocks
+        TokenRefreshRequest logoutRequest = new TokenRefreshRequest();
+        logoutRequest.setRefreshToken("refresh-token");
+        Claims claims = new DefaultClaims().setId("jti-1").setSubject("test@example.com");
+        when(verifiedTokenCache.verify("access-token")).thenReturn(Optional.of(claims));
+
+        // Exécution du test et vérification
+        mockMvc.perform(post("/api/auth/logout")
+                        .header("Authorization", "Bearer access-token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(logoutRequest)))
+                .andExpect(status().isOk());
+
+        // Le token d'accès est révoqué et retiré du cache des tokens vérifiés
+        verify(refreshTokenService).revoke("refresh-token");
+        verify(accessTokenRevocations).revoke(claims);
+        verify(verifiedTokenCache).revoke("access-token");
     }
 
     @Test
@@ -2,6 +2,7 @@ package com.openclassrooms.starterjwt.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionSummaryDto;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
@@ -10,6 +11,8 @@ import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.BookingStatus;
+import com.openclassrooms.starterjwt.services.SessionFilter;
 import com.openclassrooms.starterjwt.services.SessionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,6 +20,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -30,9 +35,11 @@ import java.util.List;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -134,7 +141,8 @@ public class SessionControllerIntegrationTest {
     public void testFindByIdSuccess() throws Exception {
         // Configuration des mocks
         when(sessionService.getById(1L)).thenReturn(session1);
-        when(sessionMapper.toDto(any(Session.class))).thenReturn(sessionDto1);
+        when(sessionService.findParticipantIds(1L)).thenReturn(Arrays.asList(1L));
+        when(sessionMapper.toDto(any(Session.class), anyList())).thenReturn(sessionDto1);
 
         // Exécution du test et vérification
         mockMvc.perform(get("/api/session/1")
@@ -147,7 +155,41 @@ public class SessionControllerIntegrationTest {
 
         // Vérification des appels aux services
         verify(sessionService).getById(1L);
-        verify(sessionMapper).toDto(any(Session.class));
+        verify(sessionMapper).toDto(session1, Arrays.asList(1L));
+    }
+
+    @Test
+    public void testFindByIdNotModified() throws Exception {
+        // Configuration des mocks
+        session1.setVersion(3L);
+        when(sessionService.getById(1L)).thenReturn(session1);
+
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/session/1")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .header("If-None-Match", "W/\"session-1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"session-1-3\""));
+
+        // Vérification : ni participants ni DTO pour une réponse 304
+        verify(sessionService, never()).findParticipantIds(anyLong());
+        verify(sessionMapper, never()).toDto(any(Session.class), anyList());
+    }
+
+    @Test
+    public void testFindByIdModifiedAfterBooking() throws Exception {
+        // Configuration des mocks : la version a changé depuis le dernier ETag
+        session1.setVersion(4L);
+        when(sessionService.getById(1L)).thenReturn(session1);
+        when(sessionService.findParticipantIds(1L)).thenReturn(Arrays.asList(1L));
+        when(sessionMapper.toDto(any(Session.class), anyList())).thenReturn(sessionDto1);
+
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/session/1")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .header("If-None-Match", "W/\"session-1-3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"session-1-4\""));
     }
 
     @Test
@@ -179,6 +221,140 @@ public class SessionControllerIntegrationTest {
         verify(sessionMapper, never()).toDto(any(Session.class));
     }
 
+    @Test
+    public void testFindAllPaged() throws Exception {
+        // Configuration des mocks
+        when(sessionService.findPage(SessionFilter.NONE, 1, 2)).thenReturn(new PageImpl<>(Arrays.asList(session1, session2), PageRequest.of(1, 2), 6));
+        when(sessionMapper.toDto(anyList(), anyMap())).thenReturn(Arrays.asList(sessionDto1, sessionDto2));
+
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/session")
+                        .param("page", "1")
+                        .param("size", "2")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "6"))
+                .andExpect(jsonPath("$", hasSize(2)));
+
+        // Vérification des appels aux services
+        verify(sessionService).findPage(SessionFilter.NONE, 1, 2);
+        verify(sessionService, never()).findAll(any());
+    }
+
+    @Test
+    public void testFindAllNotModified() throws Exception {
+        // Configuration des mocks
+        session1.setVersion(1L);
+        session2.setVersion(5L);
+        when(sessionService.findAll(SessionFilter.NONE)).thenReturn(new PageImpl<>(Arrays.asList(session1, session2)));
+        when(sessionMapper.toDto(anyList(), anyMap())).thenReturn(Arrays.asList(sessionDto1, sessionDto2));
+
+        String etag = mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        // Vérification : les participants ne sont lus que pour la première requête
+        verify(sessionService, times(1)).findParticipantIds(anyList());
+    }
+
+    @Test
+    public void testFindAllTruncatedHasTotalCount() throws Exception {
+        // Configuration des mocks : la liste est coupée au plafond
+        when(sessionService.findAll(SessionFilter.NONE)).thenReturn(new PageImpl<>(Arrays.asList(session1, session2), PageRequest.of(0, 2), 7));
+        when(sessionMapper.toDto(anyList(), anyMap())).thenReturn(Arrays.asList(sessionDto1, sessionDto2));
+
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "7"))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    public void testFindAllCompleteHasNoTotalCount() throws Exception {
+        // Configuration des mocks
+        when(sessionService.findAll(SessionFilter.NONE)).thenReturn(new PageImpl<>(Arrays.asList(session1)));
+        when(sessionMapper.toDto(anyList(), anyMap())).thenReturn(Arrays.asList(sessionDto1));
+
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Total-Count"));
+    }
+
+    @Test
+    public void testFindAllFilteredByWeekAndTeacher() throws Exception {
+        // Configuration des mocks
+        when(sessionService.findAll(any(SessionFilter.class))).thenReturn(new PageImpl<>(Arrays.asList(session1)));
+        when(sessionMapper.toDto(anyList(), anyMap())).thenReturn(Arrays.asList(sessionDto1));
+
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/session")
+                        .param("from", "2024-01-01T00:00:00.000+00:00")
+                        .param("to", "2024-01-08T00:00:00.000+00:00")
+                        .param("teacherId", "1")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        // Vérification : le filtre est transmis au service
+        verify(sessionService).findAll(new SessionFilter(new Date(1704067200000L), new Date(1704672000000L), 1L));
+    }
+
+    @Test
+    public void testFindAllSummaryView() throws Exception {
+        // Configuration des mocks
+        when(sessionService.findAll(SessionFilter.NONE)).thenReturn(new PageImpl<>(Arrays.asList(session1)));
+        when(sessionMapper.toSummary(anyList())).thenReturn(Arrays.asList(
+                new SessionSummaryDto(1L, "Yoga Session 1", new Date(), 1L, 20, 12L)));
+
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/session")
+                        .param("view", "summary")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].participantCount").value(12))
+                .andExpect(jsonPath("$[0].users").doesNotExist());
+
+        // Vérification : les ids des participants ne sont pas lus
+        verify(sessionService, never()).findParticipantIds(anyList());
+    }
+
+    @Test
+    public void testFindAllUnknownView() throws Exception {
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/session")
+                        .param("view", "compact")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isBadRequest());
+
+        // Vérification qu'aucun appel aux services n'a été fait
+        verify(sessionService, never()).findAll(any());
+    }
+
+    @Test
+    public void testFindAllKeysetWithoutAfterId() throws Exception {
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/session")
+                        .param("afterDate", "2024-01-01T10:00:00.000+00:00")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        // Vérification qu'aucun appel aux services n'a été fait
+        verify(sessionService, never()).findAfter(any(), any(), any(), anyInt());
+    }
+
     @Test
     public void testCreateSuccess() throws Exception {
         // Configuration des mocks
@@ -206,7 +382,8 @@ public class SessionControllerIntegrationTest {
         // Configuration des mocks
         when(sessionMapper.toEntity(any(SessionDto.class))).thenReturn(session1);
         when(sessionService.update(eq(1L), any(Session.class))).thenReturn(session1);
-        when(sessionMapper.toDto(any(Session.class))).thenReturn(sessionDto1);
+        when(sessionService.findParticipantIds(1L)).thenReturn(Arrays.asList(1L));
+        when(sessionMapper.toDto(session1, Arrays.asList(1L))).thenReturn(sessionDto1);
 
         // Exécution du test et vérification
         mockMvc.perform(put("/api/session/1")
@@ -220,7 +397,9 @@ public class SessionControllerIntegrationTest {
         // Vérification des appels aux services
         verify(sessionMapper).toEntity(any(SessionDto.class));
         verify(sessionService).update(eq(1L), any(Session.class));
-        verify(sessionMapper).toDto(any(Session.class));
+        // Les participants sont relus, la mise à jour ne les modifie pas
+        verify(sessionService).findParticipantIds(1L);
+        verify(sessionMapper).toDto(session1, Arrays.asList(1L));
     }
 
     @Test
@@ -287,7 +466,7 @@ public class SessionControllerIntegrationTest {
     @Test
     public void testParticipateSuccess() throws Exception {
         // Configuration des mocks
-        doNothing().when(sessionService).participate(1L, 2L);
+        when(sessionService.participate(1L, 2L)).thenReturn(BookingStatus.BOOKED);
 
         // Exécution du test et vérification
         mockMvc.perform(post("/api/session/1/participate/2")
@@ -299,6 +478,22 @@ public class SessionControllerIntegrationTest {
         verify(sessionService).participate(1L, 2L);
     }
 
+    @Test
+    public void testParticipateWaitlisted() throws Exception {
+        // Configuration des mocks : la session est complète
+        when(sessionService.participate(1L, 2L)).thenReturn(BookingStatus.WAITLISTED);
+
+        // Exécution du test et vérification
+        mockMvc.perform(post("/api/session/1/participate/2")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.message").exists());
+
+        // Vérification des appels aux services
+        verify(sessionService).participate(1L, 2L);
+    }
+
     @Test
     public void testParticipateInvalidIds() throws Exception {
         // Exécution du test et vérification
@@ -175,4 +175,28 @@ public class TeacherControllerIntegrationTest {
         verify(teacherService).findAll();
         verify(teacherMapper).toDto(anyList());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFindAllNotModified() throws Exception {
+        // Configuration des mocks
+        List<Teacher> teachers = Arrays.asList(teacher1, teacher2);
+        when(teacherService.findAll()).thenReturn(teachers);
+        when(teacherMapper.toDto(anyList())).thenReturn(Arrays.asList(teacherDto1, teacherDto2));
+
+        String etag = mockMvc.perform(get("/api/teacher")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Exécution du test et vérification : même ETag, pas de corps
+        mockMvc.perform(get("/api/teacher")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // Vérification : la liste n'est sérialisée qu'une fois
+        verify(teacherMapper, times(1)).toDto(anyList());
+    }
+}
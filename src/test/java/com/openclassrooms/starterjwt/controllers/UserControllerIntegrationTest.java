@@ -1,10 +1,14 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.dto.UserDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.mapper.UserMapper;
+import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.SessionService;
 import com.openclassrooms.starterjwt.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,12 +16,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,6 +45,12 @@ public class UserControllerIntegrationTest {
     @MockBean
     private UserMapper userMapper;
 
+    @MockBean
+    private SessionService sessionService;
+
+    @MockBean
+    private SessionMapper sessionMapper;
+
     @Autowired
     private JwtUtils jwtUtils;
 
@@ -101,6 +117,22 @@ public class UserControllerIntegrationTest {
         verify(userMapper).toDto(testUser);
     }
 
+    @Test
+    public void testFindByIdNotModified() throws Exception {
+        // Configuration des mocks
+        testUser.setUpdatedAt(LocalDateTime.of(2024, 1, 1, 10, 0));
+        when(userService.findById(1L)).thenReturn(testUser);
+
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/user/1")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .header("If-None-Match", "W/\"user-1-2024-01-01T10:00\""))
+                .andExpect(status().isNotModified());
+
+        // Vérification : pas de DTO pour une réponse 304
+        verify(userMapper, never()).toDto(any(User.class));
+    }
+
     @Test
     public void testFindByIdUserNotFound() throws Exception {
         // Configuration des mocks
@@ -198,4 +230,52 @@ public class UserControllerIntegrationTest {
         verify(userService).findById(2L);
         verify(userService, never()).delete(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFindSessionsOfSelf() throws Exception {
+        // Configuration des mocks
+        Session session = new Session().setId(5L).setVersion(1L);
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setId(5L);
+        when(sessionService.findByParticipant(1L, 0, 20)).thenReturn(new PageImpl<>(Arrays.asList(session), PageRequest.of(0, 20), 1));
+        when(sessionMapper.toDto(anyList(), anyMap())).thenReturn(Arrays.asList(sessionDto));
+
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/user/1/sessions")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(jsonPath("$[0].id").value(5));
+
+        // Vérification des appels aux services
+        verify(sessionService).findByParticipant(1L, 0, 20);
+    }
+
+    @Test
+    public void testFindMySessions() throws Exception {
+        // Configuration des mocks
+        when(sessionService.findByParticipant(1L, 2, 10)).thenReturn(new PageImpl<>(Collections.emptyList(), PageRequest.of(2, 10), 20));
+
+        // Exécution du test et vérification
+        mockMvc.perform(get("/api/user/me/sessions")
+                        .param("page", "2")
+                        .param("size", "10")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "20"));
+
+        // Vérification des appels aux services
+        verify(sessionService).findByParticipant(1L, 2, 10);
+    }
+
+    @Test
+    public void testFindSessionsOfAnotherUserUnauthorized() throws Exception {
+        // Exécution du test et vérification : l'utilisateur n'est pas admin
+        mockMvc.perform(get("/api/user/2/sessions")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isUnauthorized());
+
+        // Vérification qu'aucun appel aux services n'a été fait
+        verify(sessionService, never()).findByParticipant(any(), anyInt(), anyInt());
+    }
+}
@@ -1,11 +1,11 @@
 package com.openclassrooms.starterjwt.mapper;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionSummaryDto;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.services.TeacherService;
-import com.openclassrooms.starterjwt.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,6 +16,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -28,9 +29,6 @@ public class SessionMapperTest {
     @Mock
     private TeacherService teacherService;
 
-    @Mock
-    private UserService userService;
-
     @InjectMocks
     private SessionMapperImpl sessionMapper;
 
@@ -43,7 +41,6 @@ public class SessionMapperTest {
     public void setUp() {
         // Injection manuelle des services dans le mapper
         ReflectionTestUtils.setField(sessionMapper, "teacherService", teacherService);
-        ReflectionTestUtils.setField(sessionMapper, "userService", userService);
 
         // Création des données de test
         teacher = new Teacher();
@@ -78,6 +75,7 @@ public class SessionMapperTest {
         LocalDateTime now = LocalDateTime.now();
         session.setCreatedAt(now);
         session.setUpdatedAt(now);
+        session.setVersion(3L);
 
         // Préparation de l'objet SessionDto
         sessionDto = new SessionDto();
@@ -89,6 +87,7 @@ public class SessionMapperTest {
         sessionDto.setUsers(Arrays.asList(1L, 2L));
         sessionDto.setCreatedAt(now);
         sessionDto.setUpdatedAt(now);
+        sessionDto.setVersion(3L);
     }
 
     @Test
@@ -105,6 +104,7 @@ public class SessionMapperTest {
         assertEquals(session.getTeacher().getId(), resultDto.getTeacher_id());
         assertEquals(session.getCreatedAt(), resultDto.getCreatedAt());
         assertEquals(session.getUpdatedAt(), resultDto.getUpdatedAt());
+        assertEquals(session.getVersion(), resultDto.getVersion());
 
         // Vérification de la liste des utilisateurs
         assertNotNull(resultDto.getUsers());
@@ -117,8 +117,6 @@ public class SessionMapperTest {
     public void testToEntity() {
         // Configuration des mocks
         when(teacherService.findById(1L)).thenReturn(teacher);
-        when(userService.findById(1L)).thenReturn(user1);
-        when(userService.findById(2L)).thenReturn(user2);
 
         // Exécution du test
         Session resultSession = sessionMapper.toEntity(sessionDto);
@@ -131,21 +129,18 @@ public class SessionMapperTest {
         assertEquals(sessionDto.getDescription(), resultSession.getDescription());
         assertEquals(sessionDto.getCreatedAt(), resultSession.getCreatedAt());
         assertEquals(sessionDto.getUpdatedAt(), resultSession.getUpdatedAt());
+        assertEquals(sessionDto.getVersion(), resultSession.getVersion());
 
         // Vérification du teacher
         assertNotNull(resultSession.getTeacher());
         assertEquals(teacher.getId(), resultSession.getTeacher().getId());
 
-        // Vérification de la liste des utilisateurs
-        assertNotNull(resultSession.getUsers());
-        assertEquals(2, resultSession.getUsers().size());
-        assertEquals(user1.getId(), resultSession.getUsers().get(0).getId());
-        assertEquals(user2.getId(), resultSession.getUsers().get(1).getId());
+        // Les participants ne sont écrits que par les réservations
+        assertNull(resultSession.getUsers(), "Les participants du DTO devraient être ignorés");
+        assertNull(resultSession.getParticipantCount(), "Le compteur de participants devrait être ignoré");
 
         // Vérification des appels de méthodes
         verify(teacherService).findById(1L);
-        verify(userService).findById(1L);
-        verify(userService).findById(2L);
     }
 
     @Test
@@ -194,79 +189,89 @@ public class SessionMapperTest {
     }
 
     @Test
-    public void testToEntityWithNullUsers() {
+    public void testToEntityList() {
+        // Configuration des mocks
+        when(teacherService.findById(1L)).thenReturn(teacher);
+
         // Configuration du test
-        sessionDto.setUsers(null);
+        List<SessionDto> dtoList = Arrays.asList(sessionDto);
 
         // Exécution du test
-        Session resultSession = sessionMapper.toEntity(sessionDto);
+        List<Session> resultList = sessionMapper.toEntity(dtoList);
 
         // Vérifications
-        assertNotNull(resultSession);
-        assertNotNull(resultSession.getUsers(), "La liste des utilisateurs ne devrait pas être null");
-        assertTrue(resultSession.getUsers().isEmpty(), "La liste des utilisateurs devrait être vide");
-
-        // Vérification qu'aucun appel n'a été fait au userService
-        verify(userService, never()).findById(anyLong());
+        assertNotNull(resultList);
+        assertEquals(1, resultList.size());
+        assertEquals(sessionDto.getId(), resultList.get(0).getId());
+        assertEquals(sessionDto.getName(), resultList.get(0).getName());
     }
 
     @Test
-    public void testToEntityWithNonExistentUser() {
+    public void testToDtoList() {
         // Configuration du test
-        sessionDto.setUsers(Arrays.asList(1L, 3L)); // 3L n'existe pas
-
-        // Configuration des mocks
-        when(teacherService.findById(1L)).thenReturn(teacher);
-        when(userService.findById(1L)).thenReturn(user1);
-        when(userService.findById(3L)).thenReturn(null); // L'utilisateur 3 n'existe pas
+        List<Session> entityList = Arrays.asList(session);
 
         // Exécution du test
-        Session resultSession = sessionMapper.toEntity(sessionDto);
+        List<SessionDto> resultList = sessionMapper.toDto(entityList);
 
         // Vérifications
-        assertNotNull(resultSession);
-        assertNotNull(resultSession.getUsers());
-        assertEquals(2, resultSession.getUsers().size()); // L'implémentation garde les utilisateurs null
-        assertEquals(user1.getId(), resultSession.getUsers().get(0).getId());
-        assertNull(resultSession.getUsers().get(1)); // Le deuxième élément devrait être null
-
-        // Vérification des appels de méthodes
-        verify(userService).findById(1L);
-        verify(userService).findById(3L);
+        assertNotNull(resultList);
+        assertEquals(1, resultList.size());
+        assertEquals(session.getId(), resultList.get(0).getId());
+        assertEquals(session.getName(), resultList.get(0).getName());
     }
 
     @Test
-    public void testToEntityList() {
-        // Configuration des mocks
-        when(teacherService.findById(1L)).thenReturn(teacher);
-        when(userService.findById(1L)).thenReturn(user1);
-        when(userService.findById(2L)).thenReturn(user2);
+    public void testToDtoWithParticipantIds() {
+        // Configuration du test : les participants ne sont pas chargés
+        session.setUsers(null);
+
+        // Exécution du test
+        SessionDto resultDto = sessionMapper.toDto(session, Arrays.asList(3L, 4L));
+
+        // Vérifications
+        assertEquals(session.getId(), resultDto.getId());
+        assertEquals(session.getName(), resultDto.getName());
+        assertEquals(session.getTeacher().getId(), resultDto.getTeacher_id());
+        assertEquals(Arrays.asList(3L, 4L), resultDto.getUsers());
+    }
 
+    @Test
+    public void testToDtoListWithParticipantIds() {
         // Configuration du test
-        List<SessionDto> dtoList = Arrays.asList(sessionDto);
+        Session other = new Session();
+        other.setId(2L);
+        other.setName("Other session");
 
         // Exécution du test
-        List<Session> resultList = sessionMapper.toEntity(dtoList);
+        List<SessionDto> resultList = sessionMapper.toDto(Arrays.asList(session, other),
+                Collections.singletonMap(1L, Arrays.asList(1L, 2L)));
 
         // Vérifications
-        assertNotNull(resultList);
-        assertEquals(1, resultList.size());
-        assertEquals(sessionDto.getId(), resultList.get(0).getId());
-        assertEquals(sessionDto.getName(), resultList.get(0).getName());
+        assertEquals(2, resultList.size());
+        assertEquals(Arrays.asList(1L, 2L), resultList.get(0).getUsers());
+        assertNotNull(resultList.get(1).getUsers());
+        assertTrue(resultList.get(1).getUsers().isEmpty(), "Une session sans participant doit avoir une liste vide");
     }
 
     @Test
-    public void testToDtoList() {
+    public void testToSummaryListFromParticipantCounter() {
         // Configuration du test
-        List<Session> entityList = Arrays.asList(session);
+        session.setCapacity(20);
+        session.setParticipantCount(12);
+        Session other = new Session();
+        other.setId(2L);
+        other.setName("Other session");
 
         // Exécution du test
-        List<SessionDto> resultList = sessionMapper.toDto(entityList);
+        List<SessionSummaryDto> resultList = sessionMapper.toSummary(Arrays.asList(session, other));
 
         // Vérifications
-        assertNotNull(resultList);
-        assertEquals(1, resultList.size());
+        assertEquals(2, resultList.size());
         assertEquals(session.getId(), resultList.get(0).getId());
-        assertEquals(session.getName(), resultList.get(0).getName());
+        assertEquals(session.getTeacher().getId(), resultList.get(0).getTeacher_id());
+        assertEquals(20, resultList.get(0).getCapacity());
+        assertEquals(12L, resultList.get(0).getParticipantCount());
+        assertEquals(0L, resultList.get(1).getParticipantCount(), "Une session sans compteur chargé compte zéro");
     }
-}
\ No newline at end of file
+}
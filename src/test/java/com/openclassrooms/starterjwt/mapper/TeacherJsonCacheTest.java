@@ -0,0 +1,102 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.mapper.TeacherJsonCache.JsonBody;
+import com.openclassrooms.starterjwt.models.Teacher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TeacherJsonCacheTest {
+
+    @Mock
+    private TeacherMapper teacherMapper;
+
+    private TeacherJsonCache teacherJsonCache;
+
+    private Teacher teacher;
+    private TeacherDto teacherDto;
+
+    @BeforeEach
+    public void setUp() {
+        teacherJsonCache = new TeacherJsonCache(teacherMapper, new ObjectMapper());
+
+        teacher = new Teacher().setId(1L).setFirstName("John").setLastName("Doe");
+        teacherDto = new TeacherDto(1L, "Doe", "John", null, null);
+    }
+
+    @Test
+    public void testListSerializedOncePerSnapshot() {
+        // Arrange
+        List<Teacher> teachers = Collections.singletonList(teacher);
+        when(teacherMapper.toDto(teachers)).thenReturn(Collections.singletonList(teacherDto));
+
+        // Act
+        JsonBody first = teacherJsonCache.toJson(teachers);
+        JsonBody second = teacherJsonCache.toJson(teachers);
+
+        // Assert
+        assertSame(first, second);
+        assertTrue(new String(first.getJson(), StandardCharsets.UTF_8).contains("\"firstName\":\"John\""));
+        assertTrue(first.getEtag().startsWith("\"") && first.getEtag().endsWith("\""));
+        verify(teacherMapper, times(1)).toDto(teachers);
+    }
+
+    @Test
+    public void testNewSnapshotRebuildsList() {
+        // Arrange : une nouvelle liste remplace l'ancienne
+        TeacherDto otherDto = new TeacherDto(2L, "Smith", "Jane", null, null);
+        when(teacherMapper.toDto(anyList()))
+                .thenReturn(Collections.singletonList(teacherDto))
+                .thenReturn(Arrays.asList(teacherDto, otherDto));
+
+        // Act
+        JsonBody first = teacherJsonCache.toJson(Collections.singletonList(teacher));
+        JsonBody second = teacherJsonCache.toJson(Arrays.asList(teacher, new Teacher().setId(2L)));
+
+        // Assert
+        assertNotEquals(first.getEtag(), second.getEtag());
+        verify(teacherMapper, times(2)).toDto(anyList());
+    }
+
+    @Test
+    public void testTeacherSerializedOncePerInstance() {
+        // Arrange
+        when(teacherMapper.toDto(teacher)).thenReturn(teacherDto);
+
+        // Act
+        JsonBody first = teacherJsonCache.toJson(teacher);
+        JsonBody second = teacherJsonCache.toJson(teacher);
+
+        // Assert
+        assertSame(first, second);
+        verify(teacherMapper, times(1)).toDto(teacher);
+    }
+
+    @Test
+    public void testSameContentSameEtag() {
+        // Arrange : deux instances identiques, issues de deux snapshots
+        Teacher reloaded = new Teacher().setId(1L).setFirstName("John").setLastName("Doe");
+        when(teacherMapper.toDto(any(Teacher.class))).thenReturn(teacherDto);
+
+        // Act
+        JsonBody first = teacherJsonCache.toJson(teacher);
+        JsonBody second = teacherJsonCache.toJson(reloaded);
+
+        // Assert
+        assertNotSame(first, second);
+        assertEquals(first.getEtag(), second.getEtag());
+    }
+}
@@ -0,0 +1,25 @@
+package com.openclassrooms.starterjwt.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BCryptStrengthCalibratorTest {
+
+    @Test
+    public void testStrengthForFastHardware() {
+        // 60 ms à la force 10 : 240 ms à la force 12 est le plus proche de 250 ms
+        assertEquals(12, BCryptStrengthCalibrator.strengthFor(60, 250));
+    }
+
+    @Test
+    public void testStrengthNeverBelowDefault() {
+        // Matériel lent : on garde la force par défaut de BCrypt
+        assertEquals(BCryptStrengthCalibrator.MIN_STRENGTH, BCryptStrengthCalibrator.strengthFor(400, 250));
+    }
+
+    @Test
+    public void testStrengthCapped() {
+        assertEquals(BCryptStrengthCalibrator.MAX_STRENGTH, BCryptStrengthCalibrator.strengthFor(1, Long.MAX_VALUE / 4));
+    }
+}
@@ -0,0 +1,81 @@
+package com.openclassrooms.starterjwt.security;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BoundedPasswordEncoderTest {
+
+    @Mock
+    private PasswordEncoder delegate;
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @AfterEach
+    public void tearDown() {
+        passwordEncoder.shutdown();
+    }
+
+    @Test
+    public void testDelegatesToEncoder() {
+        // Arrange
+        passwordEncoder = new BoundedPasswordEncoder(delegate, 1, 1);
+        when(delegate.encode("password")).thenReturn("hash");
+        when(delegate.matches("password", "hash")).thenReturn(true);
+        when(delegate.upgradeEncoding("hash")).thenReturn(true);
+
+        // Act & Assert
+        assertEquals("hash", passwordEncoder.encode("password"));
+        assertTrue(passwordEncoder.matches("password", "hash"));
+        assertTrue(passwordEncoder.upgradeEncoding("hash"));
+    }
+
+    @Test
+    public void testRejectsWhenSaturated() throws Exception {
+        // Arrange : un seul thread occupé et une file d'attente pleine
+        passwordEncoder = new BoundedPasswordEncoder(delegate, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.matches(anyString(), anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return true;
+        });
+
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> passwordEncoder.matches("a", "hash"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> passwordEncoder.matches("b", "hash"));
+        while (!queued.isDone() && passwordEncoder.queueSize() == 0) {
+            Thread.sleep(1);
+        }
+
+        // Act & Assert : l'appel suivant est rejeté immédiatement
+        assertThrows(ServiceUnavailableException.class, () -> passwordEncoder.matches("c", "hash"));
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPropagatesDelegateException() {
+        // Arrange
+        passwordEncoder = new BoundedPasswordEncoder(delegate, 1, 1);
+        when(delegate.encode(null)).thenThrow(new IllegalArgumentException("rawPassword cannot be null"));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> passwordEncoder.encode(null));
+    }
+}
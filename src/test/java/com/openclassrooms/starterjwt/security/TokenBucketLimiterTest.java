@@ -0,0 +1,71 @@
+package com.openclassrooms.starterjwt.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private TokenBucketLimiter limiter;
+
+    @BeforeEach
+    public void setUp() {
+        // 3 requêtes d'affilée, puis une toutes les 10 secondes
+        limiter = new TokenBucketLimiter(3, 6, 100, now::get);
+    }
+
+    @Test
+    public void testAllowsBurstThenRejects() {
+        // Act & Assert
+        assertEquals(0, limiter.tryAcquire("127.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("127.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("127.0.0.1"));
+        assertEquals(TimeUnit.SECONDS.toNanos(10), limiter.tryAcquire("127.0.0.1"));
+    }
+
+    @Test
+    public void testRefillsOverTime() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("127.0.0.1");
+        }
+
+        // Act
+        now.addAndGet(TimeUnit.SECONDS.toNanos(4));
+        long wait = limiter.tryAcquire("127.0.0.1");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+
+        // Assert : le jeton partiel n'est pas perdu
+        assertEquals(TimeUnit.SECONDS.toNanos(6), wait);
+        assertEquals(0, limiter.tryAcquire("127.0.0.1"));
+        assertTrue(limiter.tryAcquire("127.0.0.1") > 0);
+    }
+
+    @Test
+    public void testKeysAreIndependent() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("127.0.0.1");
+        }
+
+        // Act & Assert
+        assertTrue(limiter.tryAcquire("127.0.0.1") > 0);
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    public void testAuthRateLimiterRoundsUpToSeconds() {
+        // Arrange
+        AuthRateLimiter authRateLimiter = new AuthRateLimiter(limiter, new TokenBucketLimiter(1, 1, 100, now::get));
+
+        // Act & Assert : l'email est limité indépendamment de sa casse
+        assertEquals(0, authRateLimiter.tryAcquire("127.0.0.1", "Yoga@Studio.com"));
+        assertEquals(60, authRateLimiter.tryAcquire("127.0.0.1", "yoga@studio.com"));
+    }
+}
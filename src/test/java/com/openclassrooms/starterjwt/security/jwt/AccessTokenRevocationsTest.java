@@ -0,0 +1,67 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.impl.DefaultClaims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccessTokenRevocationsTest {
+
+    private AccessTokenRevocations accessTokenRevocations;
+
+    @BeforeEach
+    public void setUp() {
+        accessTokenRevocations = new AccessTokenRevocations(60000);
+    }
+
+    @Test
+    public void testRevokeSingleToken() {
+        // Arrange
+        Claims revoked = claims("jti-1", new Date());
+        Claims other = claims("jti-2", new Date());
+
+        // Act
+        accessTokenRevocations.revoke(revoked);
+
+        // Assert
+        assertTrue(accessTokenRevocations.isRevoked(revoked));
+        assertFalse(accessTokenRevocations.isRevoked(other));
+    }
+
+    @Test
+    public void testRevokeAllTokensIssuedBefore() {
+        // Arrange
+        Claims old = claims("jti-1", new Date(System.currentTimeMillis() - 5000));
+
+        // Act
+        accessTokenRevocations.revokeAll("yoga@studio.com");
+
+        // Assert : les tokens émis ensuite restent valides
+        assertTrue(accessTokenRevocations.isRevoked(old));
+        assertFalse(accessTokenRevocations.isRevoked(claims("jti-2", new Date(System.currentTimeMillis() + 1000))));
+    }
+
+    @Test
+    public void testRevokeAllTokensIssuedInTheSameSecond() {
+        // Arrange : la date d'émission du token est tronquée à la seconde
+        long now = System.currentTimeMillis();
+        Claims sameSecond = claims("jti-1", new Date(now - now % 1000));
+
+        // Act
+        accessTokenRevocations.revokeAll("yoga@studio.com");
+
+        // Assert
+        assertTrue(accessTokenRevocations.isRevoked(sameSecond));
+    }
+
+    private static Claims claims(String id, Date issuedAt) {
+        return new DefaultClaims()
+                .setId(id)
+                .setSubject("yoga@studio.com")
+                .setIssuedAt(issuedAt);
+    }
+}
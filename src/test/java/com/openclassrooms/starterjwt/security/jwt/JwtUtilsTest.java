@@ -0,0 +1,169 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtUtilsTest {
+
+    private JwtUtils jwtUtils;
+
+    private UserDetailsImpl userDetails;
+
+    @BeforeEach
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "testSecret");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60000);
+        jwtUtils.init();
+
+        userDetails = UserDetailsImpl.builder()
+                .id(42L)
+                .username("yoga@studio.com")
+                .firstName("Admin")
+                .lastName("Studio")
+                .admin(true)
+                .password("hash")
+                .build();
+    }
+
+    @Test
+    public void testUserDetailsFromClaims() {
+        // Arrange
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null));
+
+        // Act
+        Optional<Claims> claims = jwtUtils.parseJwtToken(token);
+        UserDetailsImpl result = jwtUtils.getUserDetailsFromClaims(claims.get());
+
+        // Assert : l'utilisateur est reconstruit à partir des claims, sans mot de passe
+        assertEquals(42L, result.getId());
+        assertEquals("yoga@studio.com", result.getUsername());
+        assertEquals("Admin", result.getFirstName());
+        assertEquals("Studio", result.getLastName());
+        assertTrue(result.getAdmin());
+        assertNull(result.getPassword());
+        assertNotNull(claims.get().getId());
+    }
+
+    @Test
+    public void testParseJwtTokenWithOtherSecret() {
+        // Arrange
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null));
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "otherSecret");
+        jwtUtils.init();
+
+        // Act & Assert
+        assertFalse(jwtUtils.parseJwtToken(token).isPresent());
+    }
+
+    @Test
+    public void testParseJwtTokenMalformed() {
+        // Act & Assert
+        assertFalse(jwtUtils.parseJwtToken("not-a-token").isPresent());
+    }
+
+    @Test
+    public void testRs256SignedAndVerifiedByKeyId(@TempDir Path keys) throws Exception {
+        // Arrange
+        configureAsymmetric(keys, SignatureAlgorithm.RS256, "RSA", 2048);
+
+        // Act
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null));
+
+        // Assert : l'en-tête désigne la clé de signature
+        String header = new String(Base64.getUrlDecoder().decode(token.split("\\.")[0]), StandardCharsets.UTF_8);
+        assertTrue(header.contains("\"kid\":\"2024-01\""));
+        assertEquals("yoga@studio.com", jwtUtils.parseJwtToken(token).get().getSubject());
+    }
+
+    @Test
+    public void testEs256VerifyOnlyNode(@TempDir Path keys) throws Exception {
+        // Arrange : un nœud signe, un autre ne détient que la clé publique
+        configureAsymmetric(keys, SignatureAlgorithm.ES256, "EC", 256);
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null));
+
+        JwtUtils verifier = new JwtUtils();
+        ReflectionTestUtils.setField(verifier, "jwtExpirationMs", 60000);
+        ReflectionTestUtils.setField(verifier, "jwtAlgorithm", SignatureAlgorithm.ES256);
+        ReflectionTestUtils.setField(verifier, "jwtPublicKeys", keys.resolve("public").toString());
+        verifier.init();
+
+        // Act & Assert
+        assertEquals("yoga@studio.com", verifier.parseJwtToken(token).get().getSubject());
+        assertThrows(IllegalStateException.class,
+                () -> verifier.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null)));
+    }
+
+    @Test
+    public void testAsymmetricRejectsUnknownKeyIdAndHmacToken(@TempDir Path keys) throws Exception {
+        // Arrange
+        String hmacToken = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null));
+        configureAsymmetric(keys, SignatureAlgorithm.RS256, "RSA", 2048);
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyId", "retired");
+        String unknownKeyToken = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null));
+
+        // Act & Assert
+        assertFalse(jwtUtils.parseJwtToken(unknownKeyToken).isPresent());
+        assertFalse(jwtUtils.parseJwtToken(hmacToken).isPresent());
+    }
+
+    @Test
+    public void testAsymmetricRequiresPublicKeys() {
+        // Arrange : un chemin vide désignerait le répertoire courant
+        ReflectionTestUtils.setField(jwtUtils, "jwtAlgorithm", SignatureAlgorithm.RS256);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> jwtUtils.init());
+    }
+
+    @Test
+    public void testAsymmetricSignerRequiresMatchingPublicKey(@TempDir Path keys) throws Exception {
+        // Arrange
+        configureAsymmetric(keys, SignatureAlgorithm.RS256, "RSA", 2048);
+
+        // Act & Assert : la clé de signature doit avoir un identifiant et une clé publique associée
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyId", "");
+        assertThrows(IllegalStateException.class, () -> jwtUtils.init());
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyId", "2025-01");
+        assertThrows(IllegalStateException.class, () -> jwtUtils.init());
+    }
+
+    private void configureAsymmetric(Path keys, SignatureAlgorithm algorithm, String keyAlgorithm, int keySize) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(keyAlgorithm);
+        generator.initialize(keySize);
+        KeyPair keyPair = generator.generateKeyPair();
+
+        Path privateKey = keys.resolve("private.pem");
+        Path publicKeys = Files.createDirectory(keys.resolve("public"));
+        Files.write(privateKey, pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+        Files.write(publicKeys.resolve("2024-01.pem"), pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+
+        ReflectionTestUtils.setField(jwtUtils, "jwtAlgorithm", algorithm);
+        ReflectionTestUtils.setField(jwtUtils, "jwtPrivateKey", privateKey.toString());
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyId", "2024-01");
+        ReflectionTestUtils.setField(jwtUtils, "jwtPublicKeys", publicKeys.toString());
+        jwtUtils.init();
+    }
+
+    private static byte[] pem(String type, byte[] der) {
+        return ("-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder().encodeToString(der)
+                + "\n-----END " + type + "-----\n").getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,97 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.impl.DefaultClaims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VerifiedTokenCacheTest {
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private Claims claims;
+
+    @BeforeEach
+    public void setUp() {
+        verifiedTokenCache = new VerifiedTokenCache(jwtUtils, 100, now::get);
+
+        claims = new DefaultClaims()
+                .setSubject("yoga@studio.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60000));
+    }
+
+    @Test
+    public void testVerifyCachesValidToken() {
+        // Arrange
+        when(jwtUtils.parseJwtToken("token")).thenReturn(Optional.of(claims));
+
+        // Act
+        Optional<Claims> first = verifiedTokenCache.verify("token");
+        Optional<Claims> second = verifiedTokenCache.verify("token");
+
+        // Assert : la signature n'est vérifiée qu'une seule fois
+        assertSame(claims, first.get());
+        assertSame(claims, second.get());
+        verify(jwtUtils, times(1)).parseJwtToken("token");
+    }
+
+    @Test
+    public void testVerifyDoesNotCacheInvalidToken() {
+        // Arrange
+        when(jwtUtils.parseJwtToken("invalid")).thenReturn(Optional.empty());
+
+        // Act
+        verifiedTokenCache.verify("invalid");
+        Optional<Claims> result = verifiedTokenCache.verify("invalid");
+
+        // Assert
+        assertFalse(result.isPresent());
+        verify(jwtUtils, times(2)).parseJwtToken("invalid");
+    }
+
+    @Test
+    public void testVerifyAgainOnceTokenExpired() {
+        // Arrange
+        when(jwtUtils.parseJwtToken("token")).thenReturn(Optional.of(claims)).thenReturn(Optional.empty());
+        verifiedTokenCache.verify("token");
+
+        // Act : l'entrée expire en même temps que le token
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        Optional<Claims> result = verifiedTokenCache.verify("token");
+
+        // Assert
+        assertFalse(result.isPresent());
+        verify(jwtUtils, times(2)).parseJwtToken("token");
+    }
+
+    @Test
+    public void testVerifyAgainAfterRevoke() {
+        // Arrange
+        when(jwtUtils.parseJwtToken("token")).thenReturn(Optional.of(claims));
+        verifiedTokenCache.verify("token");
+
+        // Act
+        verifiedTokenCache.revoke("token");
+        verifiedTokenCache.verify("token");
+
+        // Assert
+        verify(jwtUtils, times(2)).parseJwtToken("token");
+    }
+}
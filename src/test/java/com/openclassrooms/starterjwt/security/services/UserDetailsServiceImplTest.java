@@ -0,0 +1,102 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserDetailsServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private UserDetailsServiceImpl userDetailsService;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        user = new User("yoga@studio.com", "Admin", "Admin", "hash", true);
+        user.setId(1L);
+    }
+
+    @Test
+    public void testLoadUserByUsernameCarriesAdminFlag() {
+        // Arrange
+        when(userRepository.findByEmail("yoga@studio.com")).thenReturn(Optional.of(user));
+
+        // Act
+        UserDetailsImpl result = (UserDetailsImpl) userDetailsService.loadUserByUsername("yoga@studio.com");
+
+        // Assert : une seule requête suffit à la connexion, statut admin et rôles compris
+        assertTrue(result.isAdmin());
+        Set<String> authorities = result.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+        assertTrue(authorities.contains(UserDetailsImpl.ROLE_USER));
+        assertTrue(authorities.contains(UserDetailsImpl.ROLE_ADMIN));
+        verify(userRepository, times(1)).findByEmail("yoga@studio.com");
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    public void testLoadUserByUsernameNotAdmin() {
+        // Arrange
+        user.setAdmin(false);
+        when(userRepository.findByEmail("yoga@studio.com")).thenReturn(Optional.of(user));
+
+        // Act
+        UserDetailsImpl result = (UserDetailsImpl) userDetailsService.loadUserByUsername("yoga@studio.com");
+
+        // Assert
+        assertFalse(result.isAdmin());
+        assertEquals(1, result.getAuthorities().size());
+    }
+
+    @Test
+    public void testUpdatePasswordStoresRehashedPassword() {
+        // Arrange
+        UserDetailsImpl userDetails = UserDetailsImpl.builder()
+                .id(1L)
+                .username("yoga@studio.com")
+                .firstName("Admin")
+                .lastName("Admin")
+                .admin(true)
+                .password("$2a$10$oldHash")
+                .build();
+        when(userRepository.updatePassword("yoga@studio.com", "{bcrypt}$2a$12$newHash")).thenReturn(1);
+
+        // Act
+        UserDetails result = userDetailsService.updatePassword(userDetails, "{bcrypt}$2a$12$newHash");
+
+        // Assert
+        assertEquals("{bcrypt}$2a$12$newHash", result.getPassword());
+        assertTrue(((UserDetailsImpl) result).isAdmin());
+        verify(userRepository).updatePassword("yoga@studio.com", "{bcrypt}$2a$12$newHash");
+    }
+
+    @Test
+    public void testLoadUserByUsernameNotFound() {
+        // Arrange
+        when(userRepository.findByEmail("unknown@studio.com")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("unknown@studio.com"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.UnauthorizedException;
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.AccessTokenRevocations;
+import com.openclassrooms.starterjwt.security.jwt.TokenDigest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private AccessTokenRevocations accessTokenRevocations;
+
+    @InjectMocks
+    private RefreshTokenService refreshTokenService;
+
+    private User user;
+    private RefreshToken refreshToken;
+
+    @BeforeEach
+    public void setUp() {
+        user = new User("yoga@studio.com", "Admin", "Admin", "hash", true);
+        user.setId(1L);
+
+        refreshToken = new RefreshToken()
+                .setId(10L)
+                .setTokenHash(TokenDigest.sha256("refresh-token"))
+                .setUser(user)
+                .setExpiryDate(LocalDateTime.now().plusDays(1));
+    }
+
+    @Test
+    public void testCreateStoresOnlyTheDigest() {
+        // Arrange
+        when(userRepository.getById(1L)).thenReturn(user);
+
+        // Act
+        String token = refreshTokenService.create(1L);
+
+        // Assert
+        assertNotNull(token);
+        verify(refreshTokenRepository).deleteExpiredByUserId(eq(1L), any(LocalDateTime.class));
+        verify(refreshTokenRepository).save(argThat(saved ->
+                saved.getTokenHash().equals(TokenDigest.sha256(token))
+                        && saved.getUser() == user
+                        && saved.getExpiryDate().isAfter(LocalDateTime.now())));
+    }
+
+    @Test
+    public void testConsumeRevokesTheToken() {
+        // Arrange
+        when(refreshTokenRepository.findByTokenHash(TokenDigest.sha256("refresh-token"))).thenReturn(Optional.of(refreshToken));
+        when(refreshTokenRepository.revoke(10L)).thenReturn(1);
+
+        // Act
+        User result = refreshTokenService.consume("refresh-token");
+
+        // Assert
+        assertSame(user, result);
+        verify(refreshTokenRepository, never()).revokeAllByUserId(any());
+    }
+
+    @Test
+    public void testConsumeUnknownToken() {
+        // Arrange
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.consume("unknown"));
+    }
+
+    @Test
+    public void testConsumeReusedTokenRevokesAllTokensOfUser() {
+        // Arrange : le token a déjà été échangé
+        when(refreshTokenRepository.findByTokenHash(TokenDigest.sha256("refresh-token"))).thenReturn(Optional.of(refreshToken));
+        when(refreshTokenRepository.revoke(10L)).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.consume("refresh-token"));
+
+        verify(refreshTokenRepository).revokeAllByUserId(1L);
+        verify(accessTokenRevocations).revokeAll("yoga@studio.com");
+    }
+
+    @Test
+    public void testConsumeExpiredToken() {
+        // Arrange
+        refreshToken.setExpiryDate(LocalDateTime.now().minusMinutes(1));
+        when(refreshTokenRepository.findByTokenHash(TokenDigest.sha256("refresh-token"))).thenReturn(Optional.of(refreshToken));
+        when(refreshTokenRepository.revoke(10L)).thenReturn(1);
+
+        // Act & Assert
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.consume("refresh-token"));
+    }
+
+    @Test
+    public void testRevoke() {
+        // Arrange
+        when(refreshTokenRepository.findByTokenHash(TokenDigest.sha256("refresh-token"))).thenReturn(Optional.of(refreshToken));
+
+        // Act
+        refreshTokenService.revoke("refresh-token");
+
+        // Assert
+        verify(refreshTokenRepository).revoke(10L);
+    }
+}
@@ -0,0 +1,209 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Réservations concurrentes sur une même session, contre la vraie base de données.
+ */
+@SpringBootTest
+public class SessionServiceConcurrencyIntegrationTest {
+
+    private static final int CAPACITY = 5;
+    private static final int THREADS = 20;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Session session;
+    private List<User> users;
+
+    @BeforeEach
+    public void setUp() {
+        session = sessionRepository.save(Session.builder()
+                .name("Concurrency session")
+                .description("Session réservée par plusieurs threads")
+                .date(new Date())
+                .capacity(CAPACITY)
+                .build());
+
+        users = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            users.add(userRepository.save(new User(UUID.randomUUID() + "@concurrency.test", "User", "Concurrent", "password", false)));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        transactionTemplate.executeWithoutResult(status ->
+                users.forEach(user -> {
+                    sessionRepository.removeParticipant(session.getId(), user.getId());
+                    waitlistRepository.deleteBySessionIdAndUserId(session.getId(), user.getId());
+                }));
+        sessionRepository.deleteById(session.getId());
+        userRepository.deleteAll(users);
+    }
+
+    @Test
+    public void testConcurrentBookingsNeverExceedCapacity() throws Exception {
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger waitlisted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        hammer(i -> () -> {
+            try {
+                if (sessionService.participate(session.getId(), users.get(i).getId()) == BookingStatus.BOOKED) {
+                    booked.incrementAndGet();
+                } else {
+                    waitlisted.incrementAndGet();
+                }
+            } catch (ConflictException e) {
+                rejected.incrementAndGet();
+            }
+            return null;
+        });
+
+        long participants = sessionRepository.countParticipants(session.getId());
+
+        // Aucune réservation acceptée n'est perdue, et la capacité n'est jamais dépassée :
+        // les autres utilisateurs sont placés en liste d'attente, sans conflit de version
+        assertEquals(booked.get(), participants);
+        assertEquals(CAPACITY, participants);
+        assertEquals(0, rejected.get());
+        assertEquals(THREADS - CAPACITY, waitlisted.get());
+        // Le compteur de la session suit les lignes de PARTICIPATE
+        assertEquals(participants, sessionRepository.findById(session.getId()).get().getParticipantCount().longValue());
+    }
+
+    @Test
+    public void testConcurrentBookingsOfSameUserAreRecordedOnce() throws Exception {
+        AtomicInteger booked = new AtomicInteger();
+        Long userId = users.get(0).getId();
+
+        hammer(i -> () -> {
+            try {
+                sessionService.participate(session.getId(), userId);
+                booked.incrementAndGet();
+            } catch (BadRequestException | ConflictException e) {
+                // Déjà inscrit
+            }
+            return null;
+        });
+
+        assertEquals(1, booked.get());
+        assertEquals(1, sessionRepository.countParticipants(session.getId()));
+    }
+
+    @Test
+    public void testConcurrentCancellationsPromoteWaitlistInOrder() throws Exception {
+        // Arrange : session complète, suivie d'une liste d'attente de CAPACITY utilisateurs
+        List<Long> participants = new ArrayList<>();
+        List<Long> waitlist = new ArrayList<>();
+        for (int i = 0; i < 2 * CAPACITY; i++) {
+            Long userId = users.get(i).getId();
+            BookingStatus status = sessionService.participate(session.getId(), userId);
+            (status == BookingStatus.BOOKED ? participants : waitlist).add(userId);
+        }
+        assertEquals(CAPACITY, participants.size());
+        assertEquals(CAPACITY, waitlist.size());
+
+        // Les participants annulent pendant que les autres utilisateurs réservent
+        int bookers = THREADS - 2 * CAPACITY;
+        AtomicInteger bookedAhead = new AtomicInteger();
+        hammer(CAPACITY + bookers, i -> () -> {
+            if (i < CAPACITY) {
+                sessionService.noLongerParticipate(session.getId(), participants.get(i));
+            } else if (sessionService.participate(session.getId(), users.get(CAPACITY + i).getId()) == BookingStatus.BOOKED) {
+                bookedAhead.incrementAndGet();
+            }
+            return null;
+        });
+
+        // Assert : le compteur suit PARTICIPATE sans dépasser la capacité
+        long count = sessionRepository.countParticipants(session.getId());
+        assertEquals(count, sessionRepository.findById(session.getId()).get().getParticipantCount().longValue());
+        assertTrue(count <= CAPACITY);
+
+        // Chaque place libérée revient à la liste d'attente, dans l'ordre d'arrivée, et une seule fois
+        List<Long> booked = sessionService.findParticipantIds(session.getId());
+        List<Long> promoted = waitlist.stream().filter(booked::contains).collect(Collectors.toList());
+        assertEquals(booked.size(), new HashSet<>(booked).size());
+        assertEquals(waitlist.subList(0, promoted.size()), promoted);
+        // Les CAPACITY places libérées ont toutes été attribuées
+        assertEquals(waitlist, promoted);
+        // Les nouveaux venus passent après la liste d'attente
+        assertEquals(0, bookedAhead.get());
+        List<Long> stillWaiting = transactionTemplate.execute(status -> waitlistRepository.findAll().stream()
+                .filter(entry -> entry.getSession().getId().equals(session.getId()))
+                .map(entry -> entry.getUser().getId())
+                .collect(Collectors.toList()));
+        assertTrue(Collections.disjoint(promoted, stillWaiting));
+        assertEquals(bookers, stillWaiting.size());
+    }
+
+    private void hammer(IntFunction<Callable<Void>> task) throws Exception {
+        hammer(THREADS, task);
+    }
+
+    private void hammer(int threads, IntFunction<Callable<Void>> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                Callable<Void> call = task.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Liste non paginée plafonnée, contre la vraie base de données.
+ */
+@SpringBootTest(properties = "oc.app.session.maxListSize=" + SessionServiceListingIntegrationTest.MAX_LIST_SIZE)
+public class SessionServiceListingIntegrationTest {
+
+    static final int MAX_LIST_SIZE = 3;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    private Teacher teacher;
+    private List<Session> pastSessions;
+    private Session upcomingSession;
+
+    @BeforeEach
+    public void setUp() {
+        // Un professeur dédié isole les sessions du test des autres lignes de la base
+        teacher = teacherRepository.save(Teacher.builder().firstName("Listing").lastName("Teacher").build());
+
+        pastSessions = new ArrayList<>();
+        for (int i = 1; i <= MAX_LIST_SIZE + 2; i++) {
+            pastSessions.add(save("Past session " + i, new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(i))));
+        }
+        upcomingSession = save("Upcoming session", new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pastSessions.forEach(session -> sessionRepository.deleteById(session.getId()));
+        sessionRepository.deleteById(upcomingSession.getId());
+        teacherRepository.deleteById(teacher.getId());
+    }
+
+    @Test
+    public void testTruncatedListingReturnsUpcomingSession() {
+        // Act
+        Page<Session> sessions = sessionService.findAll(new SessionFilter(null, null, teacher.getId()));
+
+        // Assert : les sessions passées, plus nombreuses que le plafond, ne masquent pas la session à venir
+        assertTrue(sessions.getContent().stream().anyMatch(session -> session.getId().equals(upcomingSession.getId())));
+        assertTrue(sessions.getContent().size() <= MAX_LIST_SIZE);
+    }
+
+    private Session save(String name, Date date) {
+        return sessionRepository.save(Session.builder()
+                .name(name)
+                .description("Session de la liste plafonnée")
+                .date(date)
+                .teacher(teacher)
+                .build());
+    }
+}
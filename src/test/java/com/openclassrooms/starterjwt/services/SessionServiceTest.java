@@ -1,21 +1,38 @@
 package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.SessionParticipant;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,6 +47,12 @@ public class SessionServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private WaitlistRepository waitlistRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private SessionService sessionService;
 
@@ -94,16 +117,170 @@ public class SessionServiceTest {
     public void testFindAll() {
         // Arrange
         List<Session> sessions = Arrays.asList(session);
-        when(sessionRepository.findAll()).thenReturn(sessions);
+        when(sessionRepository.findFilteredPage(any(), any(), any(), any(Pageable.class))).thenReturn(new PageImpl<>(sessions));
 
         // Act
-        List<Session> result = sessionService.findAll();
+        Page<Session> result = sessionService.findAll(SessionFilter.NONE);
 
         // Assert
         assertNotNull(result);
+        assertEquals(1, result.getContent().size());
+        assertEquals(session.getId(), result.getContent().get(0).getId());
+        // La liste non paginée est plafonnée et triée par date puis id
+        verify(sessionRepository).findFilteredPage(null, null, null, PageRequest.of(0, 500, Sort.by("date", "id")));
+    }
+
+    @Test
+    public void testFindAllFiltered() {
+        // Arrange
+        Date from = new Date(1_700_000_000_000L);
+        Date to = new Date(1_700_604_800_000L);
+        when(sessionRepository.findFilteredPage(any(), any(), any(), any(Pageable.class))).thenReturn(new PageImpl<>(Arrays.asList(session)));
+
+        // Act
+        sessionService.findAll(new SessionFilter(from, to, 3L));
+
+        // Assert
+        verify(sessionRepository).findFilteredPage(from, to, 3L, PageRequest.of(0, 500, Sort.by("date", "id")));
+    }
+
+    @Test
+    public void testFindAllTruncatedStartsWithUpcomingSessions() {
+        // Arrange : plus de 500 sessions passées remplissent la liste plafonnée
+        Session upcoming = new Session();
+        upcoming.setId(600L);
+        upcoming.setDate(new Date(System.currentTimeMillis() + 86_400_000L));
+        PageRequest firstPage = PageRequest.of(0, 500, Sort.by("date", "id"));
+        when(sessionRepository.findFilteredPage(isNull(), isNull(), isNull(), eq(firstPage)))
+                .thenReturn(new PageImpl<>(Collections.nCopies(500, session), firstPage, 501));
+        when(sessionRepository.findFilteredPage(notNull(), isNull(), isNull(), eq(firstPage)))
+                .thenReturn(new PageImpl<>(Collections.singletonList(upcoming), firstPage, 1));
+
+        // Act
+        Page<Session> result = sessionService.findAll(SessionFilter.NONE);
+
+        // Assert : la session à venir est renvoyée
+        assertEquals(Collections.singletonList(upcoming), result.getContent());
+        assertFalse(result.hasNext());
+    }
+
+    @Test
+    public void testFindAllTruncatedWithStartDateKeepsWindow() {
+        // Arrange
+        Date from = new Date(1_700_000_000_000L);
+        PageRequest firstPage = PageRequest.of(0, 500, Sort.by("date", "id"));
+        when(sessionRepository.findFilteredPage(from, null, null, firstPage))
+                .thenReturn(new PageImpl<>(Collections.nCopies(500, session), firstPage, 501));
+
+        // Act
+        Page<Session> result = sessionService.findAll(new SessionFilter(from, null, null));
+
+        // Assert : la fenêtre demandée par le client est respectée
+        assertEquals(501, result.getTotalElements());
+        verify(sessionRepository, times(1)).findFilteredPage(any(), any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    public void testFindAllInvalidWindow() {
+        // Arrange
+        Date from = new Date(1_700_604_800_000L);
+        Date to = new Date(1_700_000_000_000L);
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> sessionService.findAll(new SessionFilter(from, to, null)));
+        assertThrows(BadRequestException.class, () -> sessionService.findAll(new SessionFilter(from, from, null)));
+
+        verify(sessionRepository, never()).findFilteredPage(any(), any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    public void testFindPage() {
+        // Arrange
+        Page<Session> page = new PageImpl<>(Arrays.asList(session), PageRequest.of(2, 10), 21);
+        when(sessionRepository.findFilteredPage(any(), any(), any(), any(Pageable.class))).thenReturn(page);
+
+        // Act
+        Page<Session> result = sessionService.findPage(SessionFilter.NONE, 2, 10);
+
+        // Assert
+        assertEquals(21, result.getTotalElements());
+        assertEquals(1, result.getContent().size());
+        verify(sessionRepository).findFilteredPage(null, null, null, PageRequest.of(2, 10, Sort.by("date", "id")));
+    }
+
+    @Test
+    public void testFindPageSizeIsCapped() {
+        // Arrange
+        when(sessionRepository.findFilteredPage(any(), any(), any(), any(Pageable.class))).thenReturn(new PageImpl<>(Arrays.asList(session)));
+
+        // Act
+        sessionService.findPage(new SessionFilter(null, null, 3L), 0, 10000);
+
+        // Assert
+        verify(sessionRepository).findFilteredPage(null, null, 3L, PageRequest.of(0, 100, Sort.by("date", "id")));
+    }
+
+    @Test
+    public void testFindPageInvalidArguments() {
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> sessionService.findPage(SessionFilter.NONE, -1, 10));
+        assertThrows(BadRequestException.class, () -> sessionService.findPage(SessionFilter.NONE, 0, 0));
+
+        verify(sessionRepository, never()).findFilteredPage(any(), any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    public void testFindAfterCursor() {
+        // Arrange
+        Date date = new Date();
+        Date from = new Date(1_700_000_000_000L);
+        when(sessionRepository.findAfter(from, null, null, date, 1L, PageRequest.of(0, 20))).thenReturn(Arrays.asList(session));
+
+        // Act
+        List<Session> result = sessionService.findAfter(new SessionFilter(from, null, null), date, 1L, 20);
+
+        // Assert
+        assertEquals(1, result.size());
+        verify(sessionRepository).findAfter(from, null, null, date, 1L, PageRequest.of(0, 20));
+        verify(sessionRepository, never()).findFiltered(any(), any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    public void testFindAfterWithoutCursorReturnsFirstPage() {
+        // Arrange
+        when(sessionRepository.findFiltered(any(), any(), any(), any(Pageable.class))).thenReturn(Arrays.asList(session));
+
+        // Act
+        List<Session> result = sessionService.findAfter(SessionFilter.NONE, null, null, 20);
+
+        // Assert
         assertEquals(1, result.size());
-        assertEquals(session.getId(), result.get(0).getId());
-        verify(sessionRepository).findAll();
+        verify(sessionRepository).findFiltered(null, null, null, PageRequest.of(0, 20, Sort.by("date", "id")));
+        verify(sessionRepository, never()).findAfter(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testFindByParticipant() {
+        // Arrange
+        Page<Session> page = new PageImpl<>(Arrays.asList(session), PageRequest.of(0, 20), 1);
+        when(sessionRepository.findByParticipant(eq(2L), any(Pageable.class))).thenReturn(page);
+
+        // Act
+        Page<Session> result = sessionService.findByParticipant(2L, 0, 20);
+
+        // Assert
+        assertEquals(1, result.getTotalElements());
+        // L'ordre est fixé par la requête native
+        verify(sessionRepository).findByParticipant(2L, PageRequest.of(0, 20));
+    }
+
+    @Test
+    public void testFindByParticipantInvalidArguments() {
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> sessionService.findByParticipant(2L, -1, 20));
+        assertThrows(BadRequestException.class, () -> sessionService.findByParticipant(2L, 0, 0));
+
+        verify(sessionRepository, never()).findByParticipant(any(), any(Pageable.class));
     }
 
     @Test
@@ -135,6 +312,45 @@ public class SessionServiceTest {
         verify(sessionRepository).findById(sessionId);
     }
 
+    @Test
+    public void testFindParticipantIds() {
+        // Arrange
+        Session other = new Session();
+        other.setId(2L);
+        when(sessionRepository.findParticipants(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(
+                participant(1L, 1L), participant(1L, 2L), participant(2L, 2L)));
+
+        // Act
+        Map<Long, List<Long>> result = sessionService.findParticipantIds(Arrays.asList(session, other));
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 2L), result.get(1L));
+        assertEquals(Collections.singletonList(2L), result.get(2L));
+    }
+
+    @Test
+    public void testFindParticipantIdsWithoutSessions() {
+        // Act
+        Map<Long, List<Long>> result = sessionService.findParticipantIds(Collections.emptyList());
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(sessionRepository, never()).findParticipants(any());
+    }
+
+    @Test
+    public void testFindParticipantIdsOfSession() {
+        // Arrange
+        when(sessionRepository.findParticipants(Collections.singletonList(1L))).thenReturn(Arrays.asList(
+                participant(1L, 1L), participant(1L, 2L)));
+
+        // Act
+        List<Long> result = sessionService.findParticipantIds(1L);
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 2L), result);
+    }
+
     @Test
     public void testUpdate() {
         // Arrange
@@ -142,17 +358,151 @@ public class SessionServiceTest {
         Session updatedSession = new Session();
         updatedSession.setName("Updated Yoga Session");
         updatedSession.setDescription("Updated description");
+        updatedSession.setCapacity(12);
 
-        when(sessionRepository.save(any(Session.class))).thenReturn(updatedSession);
+        when(sessionRepository.findForBooking(sessionId)).thenReturn(Optional.of(session));
+        when(sessionRepository.save(session)).thenReturn(session);
 
         // Act
         Session result = sessionService.update(sessionId, updatedSession);
 
         // Assert
-        assertNotNull(result);
-        assertEquals(updatedSession.getName(), result.getName());
-        assertEquals(sessionId, updatedSession.getId()); // Vérifie que l'ID a bien été défini
-        verify(sessionRepository).save(updatedSession);
+        assertSame(session, result); // La session existante est modifiée
+        assertEquals("Updated Yoga Session", result.getName());
+        assertEquals("Updated description", result.getDescription());
+        assertEquals(12, result.getCapacity());
+        assertEquals(Collections.singletonList(user1), result.getUsers()); // Les participants sont conservés
+        verify(sessionRepository).save(session);
+        verify(sessionRepository, never()).save(updatedSession);
+    }
+
+    @Test
+    public void testCreateIgnoresParticipants() {
+        // Arrange
+        when(sessionRepository.save(session)).thenReturn(session);
+
+        // Act
+        sessionService.create(session);
+
+        // Assert
+        assertNull(session.getUsers());
+        verify(sessionRepository, never()).addParticipant(any(), any());
+    }
+
+    @Test
+    public void testUpdateNotFound() {
+        // Arrange
+        when(sessionRepository.findForBooking(99L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(NotFoundException.class, () -> sessionService.update(99L, new Session()));
+
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testUpdateRejectsStaleVersion() {
+        // Arrange : le client a lu la version 2, la session est en version 3
+        session.setVersion(3L);
+        Session updatedSession = new Session();
+        updatedSession.setName("Updated Yoga Session");
+        updatedSession.setVersion(2L);
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+
+        // Act & Assert
+        assertThrows(ConflictException.class, () -> sessionService.update(1L, updatedSession));
+
+        assertEquals("Yoga Session", session.getName());
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testUpdateConcurrentChangeIsConflict() {
+        // Arrange : une écriture concurrente fait échouer le flush, la session relue est en version 4
+        session.setVersion(3L);
+        Session changed = new Session();
+        changed.setVersion(4L);
+        Session updatedSession = new Session();
+        updatedSession.setVersion(3L);
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session)).thenReturn(Optional.of(changed));
+        when(sessionRepository.save(session)).thenThrow(new ObjectOptimisticLockingFailureException(Session.class, 1L));
+
+        // Act & Assert : 409 plutôt qu'une erreur 500
+        assertThrows(ConflictException.class, () -> sessionService.update(1L, updatedSession));
+
+        verify(sessionRepository, times(2)).findForBooking(1L);
+    }
+
+    @Test
+    public void testUpdateWithCurrentVersion() {
+        // Arrange
+        session.setVersion(3L);
+        Session updatedSession = new Session();
+        updatedSession.setName("Updated Yoga Session");
+        updatedSession.setVersion(3L);
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.save(session)).thenReturn(session);
+
+        // Act
+        Session result = sessionService.update(1L, updatedSession);
+
+        // Assert
+        assertEquals("Updated Yoga Session", result.getName());
+        verify(sessionRepository).save(session);
+    }
+
+    @Test
+    public void testUpdateRaisedCapacityPromotesWaitlist() {
+        // Arrange : la capacité passe de 1 à 3, deux utilisateurs attendent
+        session.setCapacity(1);
+        Session updatedSession = new Session();
+        updatedSession.setName("Yoga Session");
+        updatedSession.setCapacity(3);
+        User user3 = new User();
+        user3.setId(3L);
+        WaitlistEntry first = new WaitlistEntry().setId(7L).setSession(session).setUser(user2);
+        WaitlistEntry second = new WaitlistEntry().setId(8L).setSession(session).setUser(user3);
+        Session reloaded = new Session();
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(reloaded));
+        when(sessionRepository.save(session)).thenReturn(session);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L))
+                .thenReturn(Optional.of(first))
+                .thenReturn(Optional.of(second))
+                .thenReturn(Optional.empty());
+        when(sessionRepository.incrementParticipantCount(1L)).thenReturn(1);
+
+        // Act
+        Session result = sessionService.update(1L, updatedSession);
+
+        // Assert : les nouvelles places reviennent à la liste d'attente, dans l'ordre
+        assertSame(reloaded, result);
+        InOrder inOrder = inOrder(sessionRepository, waitlistRepository);
+        inOrder.verify(sessionRepository).addParticipant(1L, 2L);
+        inOrder.verify(waitlistRepository).delete(first);
+        inOrder.verify(sessionRepository).addParticipant(1L, 3L);
+        inOrder.verify(waitlistRepository).delete(second);
+    }
+
+    @Test
+    public void testUpdateFullSessionKeepsWaitlist() {
+        // Arrange
+        session.setCapacity(1);
+        Session updatedSession = new Session();
+        updatedSession.setCapacity(1);
+        WaitlistEntry head = new WaitlistEntry().setId(7L).setSession(session).setUser(user2);
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.save(session)).thenReturn(session);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L)).thenReturn(Optional.of(head));
+        when(sessionRepository.incrementParticipantCount(1L)).thenReturn(0);
+
+        // Act
+        Session result = sessionService.update(1L, updatedSession);
+
+        // Assert
+        assertSame(session, result);
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+        verify(waitlistRepository, never()).delete(any(WaitlistEntry.class));
     }
 
     @Test
@@ -161,20 +511,138 @@ public class SessionServiceTest {
         Long sessionId = 1L;
         Long userId = 2L;
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user2));
-        when(sessionRepository.save(any(Session.class))).thenReturn(session);
+        when(sessionRepository.findForBooking(sessionId)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(sessionRepository.incrementParticipantCount(sessionId)).thenReturn(1);
+        when(sessionRepository.addParticipant(sessionId, userId)).thenReturn(1);
+
+        // Act
+        BookingStatus status = sessionService.participate(sessionId, userId);
+
+        // Assert : une seule insertion dans PARTICIPATE et le compteur de la session, sans sauvegarder la session
+        assertEquals(BookingStatus.BOOKED, status);
+        verify(sessionRepository).addParticipant(sessionId, userId);
+        verify(sessionRepository).incrementParticipantCount(sessionId);
+        verify(sessionRepository, never()).countParticipants(any());
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testParticipateWithRemainingCapacity() {
+        // Arrange
+        session.setCapacity(2);
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(sessionRepository.incrementParticipantCount(1L)).thenReturn(1);
 
         // Act
-        sessionService.participate(sessionId, userId);
+        sessionService.participate(1L, 2L);
 
         // Assert
-        verify(sessionRepository).findById(sessionId);
-        verify(userRepository).findById(userId);
-        verify(sessionRepository).save(session);
+        verify(sessionRepository).addParticipant(1L, 2L);
+    }
+
+    @Test
+    public void testParticipateSessionFullJoinsWaitlist() {
+        // Arrange
+        session.setCapacity(1);
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(userRepository.getById(2L)).thenReturn(user2);
+        // Le compteur est déjà à la capacité
+        when(sessionRepository.incrementParticipantCount(1L)).thenReturn(0);
+        when(sessionRepository.countParticipant(1L, 2L)).thenReturn(0L);
+
+        // Act
+        BookingStatus status = sessionService.participate(1L, 2L);
+
+        // Assert : l'utilisateur est placé en liste d'attente, sans réservation
+        assertEquals(BookingStatus.WAITLISTED, status);
+        verify(waitlistRepository).save(argThat(entry -> entry.getSession() == session && entry.getUser() == user2));
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testParticipateBehindWaitlist() {
+        // Arrange : des utilisateurs attendent déjà une place
+        session.setCapacity(2);
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(userRepository.getById(2L)).thenReturn(user2);
+        when(waitlistRepository.existsBySessionId(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 2L)).thenReturn(0L);
+
+        // Act
+        BookingStatus status = sessionService.participate(1L, 2L);
+
+        // Assert : l'utilisateur passe après la liste d'attente, même si une place est libre
+        assertEquals(BookingStatus.WAITLISTED, status);
+        verify(waitlistRepository).save(argThat(entry -> entry.getSession() == session && entry.getUser() == user2));
+        verify(sessionRepository, never()).incrementParticipantCount(anyLong());
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testParticipateSessionFullAlreadyParticipating() {
+        // Arrange
+        session.setCapacity(1);
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        // Le compteur est déjà à la capacité
+        when(sessionRepository.incrementParticipantCount(1L)).thenReturn(0);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(1L);
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> sessionService.participate(1L, 1L));
 
-        // Vérifie que l'utilisateur a bien été ajouté à la session
-        assertTrue(session.getUsers().contains(user2));
+        verify(waitlistRepository, never()).save(any());
+    }
+
+    @Test
+    public void testParticipateSessionFullAlreadyWaitlisted() {
+        // Arrange : la contrainte unique de WAITLIST rejette le doublon
+        session.setCapacity(1);
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(userRepository.getById(2L)).thenReturn(user2);
+        // Le compteur est déjà à la capacité
+        when(sessionRepository.incrementParticipantCount(1L)).thenReturn(0);
+        when(waitlistRepository.save(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> sessionService.participate(1L, 2L));
+    }
+
+    @Test
+    public void testParticipateRetriesAfterConcurrentBooking() {
+        // Arrange : la première tentative perd la course sur la version de la session
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(sessionRepository.incrementParticipantCount(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 2L))
+                .thenThrow(new OptimisticLockingFailureException("stale session version"))
+                .thenReturn(1);
+
+        // Act
+        sessionService.participate(1L, 2L);
+
+        // Assert
+        verify(sessionRepository, times(2)).findForBooking(1L);
+        verify(sessionRepository, times(2)).addParticipant(1L, 2L);
+    }
+
+    @Test
+    public void testParticipateGivesUpAfterMaxAttempts() {
+        // Arrange
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(sessionRepository.incrementParticipantCount(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 2L)).thenThrow(new OptimisticLockingFailureException("stale session version"));
+
+        // Act & Assert
+        assertThrows(ConflictException.class, () -> sessionService.participate(1L, 2L));
+
+        verify(sessionRepository, times(10)).addParticipant(1L, 2L);
     }
 
     @Test
@@ -183,18 +651,15 @@ public class SessionServiceTest {
         Long sessionId = 99L;
         Long userId = 2L;
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.empty());
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(sessionRepository.findForBooking(sessionId)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(NotFoundException.class, () -> {
             sessionService.participate(sessionId, userId);
         });
 
-        verify(sessionRepository).findById(sessionId);
-        // L'implémentation appelle userRepository.findById même si la session n'est pas trouvée
-        verify(userRepository).findById(userId);
-        verify(sessionRepository, never()).save(any());
+        verify(sessionRepository).findForBooking(sessionId);
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
     }
 
     @Test
@@ -203,17 +668,16 @@ public class SessionServiceTest {
         Long sessionId = 1L;
         Long userId = 99L;
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(sessionRepository.findForBooking(sessionId)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(userId)).thenReturn(false);
 
         // Act & Assert
         assertThrows(NotFoundException.class, () -> {
             sessionService.participate(sessionId, userId);
         });
 
-        verify(sessionRepository).findById(sessionId);
-        verify(userRepository).findById(userId);
-        verify(sessionRepository, never()).save(any());
+        verify(userRepository).existsById(userId);
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
     }
 
     @Test
@@ -222,17 +686,18 @@ public class SessionServiceTest {
         Long sessionId = 1L;
         Long userId = 1L; // user1 participe déjà
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user1));
+        when(sessionRepository.findForBooking(sessionId)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(sessionRepository.incrementParticipantCount(sessionId)).thenReturn(1);
+        // La clé primaire (session_id, user_id) rejette le doublon
+        when(sessionRepository.addParticipant(sessionId, userId)).thenThrow(new DataIntegrityViolationException("duplicate"));
 
         // Act & Assert
         assertThrows(BadRequestException.class, () -> {
             sessionService.participate(sessionId, userId);
         });
 
-        verify(sessionRepository).findById(sessionId);
-        verify(userRepository).findById(userId);
-        verify(sessionRepository, never()).save(any());
+        verify(sessionRepository).addParticipant(sessionId, userId);
     }
 
     @Test
@@ -241,18 +706,86 @@ public class SessionServiceTest {
         Long sessionId = 1L;
         Long userId = 1L; // user1 participe déjà
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-        when(sessionRepository.save(any(Session.class))).thenReturn(session);
+        when(sessionRepository.findForBooking(sessionId)).thenReturn(Optional.of(session));
+        when(sessionRepository.removeParticipant(sessionId, userId)).thenReturn(1);
 
         // Act
         sessionService.noLongerParticipate(sessionId, userId);
 
+        // Assert : une seule suppression dans PARTICIPATE, sans réécrire la liste des participants
+        verify(sessionRepository).removeParticipant(sessionId, userId);
+        verify(sessionRepository).decrementParticipantCount(sessionId);
+        verify(waitlistRepository, never()).findFirstBySessionIdOrderByIdAsc(any()); // Session sans limite de places
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testNoLongerParticipatePromotesHeadOfWaitlist() {
+        // Arrange
+        session.setCapacity(1);
+        WaitlistEntry head = new WaitlistEntry().setId(7L).setSession(session).setUser(user2);
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.removeParticipant(1L, 1L)).thenReturn(1);
+        when(sessionRepository.incrementParticipantCount(1L)).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L)).thenReturn(Optional.of(head)).thenReturn(Optional.empty());
+
+        // Act
+        sessionService.noLongerParticipate(1L, 1L);
+
+        // Assert : la place libérée revient au premier de la liste d'attente
+        verify(sessionRepository).decrementParticipantCount(1L);
+        verify(sessionRepository).addParticipant(1L, 2L);
+        verify(waitlistRepository).delete(head);
+    }
+
+    @Test
+    public void testNoLongerParticipateCapacityLoweredKeepsWaitlist() {
+        // Arrange : la capacité a été abaissée sous le nombre de participants restants
+        session.setCapacity(1);
+        WaitlistEntry head = new WaitlistEntry().setId(7L).setSession(session).setUser(user2);
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.removeParticipant(1L, 1L)).thenReturn(1);
+        when(sessionRepository.incrementParticipantCount(1L)).thenReturn(0);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L)).thenReturn(Optional.of(head));
+
+        // Act
+        sessionService.noLongerParticipate(1L, 1L);
+
         // Assert
-        verify(sessionRepository).findById(sessionId);
-        verify(sessionRepository).save(session);
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+        verify(waitlistRepository, never()).delete(any(WaitlistEntry.class));
+    }
+
+    @Test
+    public void testReconcileParticipantCounts() {
+        // Arrange : la session 2 a été corrigée entre la lecture et la mise à jour
+        when(sessionRepository.findDriftingParticipantCounts()).thenReturn(Arrays.asList(1L, 2L, 3L));
+        when(sessionRepository.reconcileParticipantCount(1L)).thenReturn(1);
+        when(sessionRepository.reconcileParticipantCount(2L)).thenReturn(0);
+        when(sessionRepository.reconcileParticipantCount(3L)).thenReturn(1);
 
-        // Vérifie que l'utilisateur a bien été retiré de la session
-        assertFalse(session.getUsers().stream().anyMatch(u -> u.getId().equals(userId)));
+        // Act
+        int repaired = sessionService.reconcileParticipantCounts();
+
+        // Assert : une transaction courte par session
+        assertEquals(2, repaired);
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(sessionRepository, times(3)).reconcileParticipantCount(anyLong());
+    }
+
+    @Test
+    public void testNoLongerParticipateLeavesWaitlist() {
+        // Arrange
+        when(sessionRepository.findForBooking(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.removeParticipant(1L, 2L)).thenReturn(0);
+        when(waitlistRepository.deleteBySessionIdAndUserId(1L, 2L)).thenReturn(1);
+
+        // Act
+        sessionService.noLongerParticipate(1L, 2L);
+
+        // Assert
+        verify(waitlistRepository).deleteBySessionIdAndUserId(1L, 2L);
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
     }
 
     @Test
@@ -261,14 +794,14 @@ public class SessionServiceTest {
         Long sessionId = 99L;
         Long userId = 1L;
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.empty());
+        when(sessionRepository.findForBooking(sessionId)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(NotFoundException.class, () -> {
             sessionService.noLongerParticipate(sessionId, userId);
         });
 
-        verify(sessionRepository).findById(sessionId);
+        verify(sessionRepository, never()).removeParticipant(anyLong(), anyLong());
         verify(sessionRepository, never()).save(any());
     }
 
@@ -278,14 +811,30 @@ public class SessionServiceTest {
         Long sessionId = 1L;
         Long userId = 2L; // user2 ne participe pas
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(sessionRepository.findForBooking(sessionId)).thenReturn(Optional.of(session));
+        when(sessionRepository.removeParticipant(sessionId, userId)).thenReturn(0);
+        when(waitlistRepository.deleteBySessionIdAndUserId(sessionId, userId)).thenReturn(0);
 
         // Act & Assert
         assertThrows(BadRequestException.class, () -> {
             sessionService.noLongerParticipate(sessionId, userId);
         });
 
-        verify(sessionRepository).findById(sessionId);
+        verify(sessionRepository).removeParticipant(sessionId, userId);
         verify(sessionRepository, never()).save(any());
     }
-}
\ No newline at end of file
+
+    private static SessionParticipant participant(Long sessionId, Long userId) {
+        return new SessionParticipant() {
+            @Override
+            public Long getSessionId() {
+                return sessionId;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+        };
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
 
 import java.util.Arrays;
 import java.util.List;
@@ -46,7 +47,7 @@ public class TeacherServiceTest {
     public void testFindAll() {
         // Arrange
         List<Teacher> teachers = Arrays.asList(teacher1, teacher2);
-        when(teacherRepository.findAll()).thenReturn(teachers);
+        when(teacherRepository.findAll(Sort.by("id"))).thenReturn(teachers);
 
         // Act
         List<Teacher> result = teacherService.findAll();
@@ -60,14 +61,14 @@ public class TeacherServiceTest {
         assertEquals(teacher2.getId(), result.get(1).getId());
         assertEquals(teacher2.getFirstName(), result.get(1).getFirstName());
         assertEquals(teacher2.getLastName(), result.get(1).getLastName());
-        verify(teacherRepository).findAll();
+        verify(teacherRepository).findAll(Sort.by("id"));
     }
 
     @Test
     public void testFindByIdExisting() {
         // Arrange
         Long teacherId = 1L;
-        when(teacherRepository.findById(teacherId)).thenReturn(Optional.of(teacher1));
+        when(teacherRepository.findAll(Sort.by("id"))).thenReturn(Arrays.asList(teacher1, teacher2));
 
         // Act
         Teacher result = teacherService.findById(teacherId);
@@ -77,14 +78,14 @@ public class TeacherServiceTest {
         assertEquals(teacherId, result.getId());
         assertEquals(teacher1.getFirstName(), result.getFirstName());
         assertEquals(teacher1.getLastName(), result.getLastName());
-        verify(teacherRepository).findById(teacherId);
+        verify(teacherRepository, never()).findById(any());
     }
 
     @Test
     public void testFindByIdNonExisting() {
         // Arrange
         Long teacherId = 99L;
-        when(teacherRepository.findById(teacherId)).thenReturn(Optional.empty());
+        when(teacherRepository.findAll(Sort.by("id"))).thenReturn(Arrays.asList(teacher1, teacher2));
 
         // Act
         Teacher result = teacherService.findById(teacherId);
@@ -92,5 +93,57 @@ public class TeacherServiceTest {
         // Assert
         assertNull(result);
         verify(teacherRepository).findById(teacherId);
+        verify(teacherRepository, times(1)).findAll(Sort.by("id")); // Pas de rechargement pour un id inconnu
+    }
+
+    @Test
+    public void testFindByIdMissingFromSnapshot() {
+        // Arrange : le professeur 3 a été ajouté après le chargement de l'instantané
+        Teacher teacher3 = new Teacher().setId(3L).setFirstName("New").setLastName("Teacher");
+        when(teacherRepository.findAll(Sort.by("id")))
+                .thenReturn(Arrays.asList(teacher1, teacher2))
+                .thenReturn(Arrays.asList(teacher1, teacher2, teacher3));
+        when(teacherRepository.findById(3L)).thenReturn(Optional.of(teacher3));
+
+        // Act
+        Teacher result = teacherService.findById(3L);
+
+        // Assert : il est lu en base, et l'instantané est rechargé
+        assertEquals(teacher3, result);
+        assertEquals(3, teacherService.findAll().size());
+        assertEquals(teacher3, teacherService.findById(3L));
+        verify(teacherRepository, times(1)).findById(3L);
+        verify(teacherRepository, times(2)).findAll(Sort.by("id"));
+    }
+
+    @Test
+    public void testReadsServedFromSnapshot() {
+        // Arrange
+        when(teacherRepository.findAll(Sort.by("id"))).thenReturn(Arrays.asList(teacher1, teacher2));
+
+        // Act
+        teacherService.findAll();
+        teacherService.findById(1L);
+        teacherService.findById(2L);
+
+        // Assert : une seule requête pour toutes les lectures
+        verify(teacherRepository, times(1)).findAll(Sort.by("id"));
+    }
+
+    @Test
+    public void testRefreshReplacesSnapshot() {
+        // Arrange
+        Teacher teacher3 = new Teacher().setId(3L).setFirstName("New").setLastName("Teacher");
+        when(teacherRepository.findAll(Sort.by("id")))
+                .thenReturn(Arrays.asList(teacher1, teacher2))
+                .thenReturn(Arrays.asList(teacher1, teacher2, teacher3));
+        assertNull(teacherService.findById(3L));
+
+        // Act
+        teacherService.refresh();
+
+        // Assert
+        assertEquals(teacher3, teacherService.findById(3L));
+        assertEquals(3, teacherService.findAll().size());
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,6 +21,9 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
     @InjectMocks
     private UserService userService;
 
@@ -41,13 +45,27 @@ public class UserServiceTest {
     public void testDelete() {
         // Arrange
         Long userId = 1L;
-        doNothing().when(userRepository).deleteById(userId);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
 
         // Act
         userService.delete(userId);
 
+        // Assert : l'utilisateur supprimé est retiré du cache d'authentification
+        verify(userRepository).delete(user);
+        verify(userDetailsService).evict("test@example.com");
+    }
+
+    @Test
+    public void testDeleteUnknownUser() {
+        // Arrange
+        when(userRepository.findById(99L)).thenReturn(Optional.empty());
+
+        // Act
+        userService.delete(99L);
+
         // Assert
-        verify(userRepository).deleteById(userId);
+        verify(userRepository, never()).delete(any());
+        verify(userDetailsService, never()).evict(any());
     }
 
     @Test
@@ -83,4 +101,4 @@ public class UserServiceTest {
         assertNull(result);
         verify(userRepository).findById(userId);
     }
-}
\ No newline at end of file
+}